@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.base;
+
+import com.admin.utils.PermissionSet;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * 当前登录用户，common 模块通过该接口直接读取用户信息，无需关心具体实现
+ *
+ * @author adyfang
+ */
+public interface BaseUserDetails extends UserDetails {
+
+    /**
+     * 用户ID
+     *
+     * @return /
+     */
+    Long getUserId();
+
+    /**
+     * 数据权限，为空代表全部
+     *
+     * @return 部门ID
+     */
+    List<Long> getDataScopes();
+
+    /**
+     * 用户权限位图
+     *
+     * @return /
+     */
+    PermissionSet getPermissions();
+}
@@ -0,0 +1,276 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 未指定 key 的 @Cacheable 使用的 key 生成策略：
+ * <ul>
+ *     <li>每个方法的前缀（类的全限定名.方法名，重载时加上参数类型）只计算一次，
+ *     不同包中同名的类共用一个缓存名称时 key 也不会冲突</li>
+ *     <li>无参方法直接使用前缀，有参数时按参数结构计算 128 位非加密哈希，追加 32 位十六进制</li>
+ * </ul>
+ * 哈希只依赖参数的类型名与字段值，不依赖内存地址，重启后保持不变。
+ * 集合、数组按顺序计算，Set、Map 与顺序无关，其它对象按字段名排序后逐个计算
+ *
+ * @author adyfang
+ */
+public class CacheKeyGenerator implements KeyGenerator {
+
+    private static final int MAX_DEPTH = 16;
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int NULL = 1;
+    private static final int STRING = 2;
+    private static final int INTEGRAL = 3;
+    private static final int DECIMAL = 4;
+    private static final int BOOLEAN = 5;
+    private static final int ENUM = 6;
+    private static final int DATE = 7;
+    private static final int LIST = 8;
+    private static final int SET = 9;
+    private static final int MAP = 10;
+    private static final int OBJECT = 11;
+    private static final int OTHER = 12;
+    private static final int CHAR = 13;
+
+    private final Map<Class<?>, Map<Method, String>> prefixes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Field[]> fields = new ConcurrentHashMap<>();
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        Class<?> targetClass = target.getClass();
+        String prefix = prefixes.computeIfAbsent(targetClass, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, m -> prefix(ClassUtils.getUserClass(targetClass), m));
+        if (params.length == 0) {
+            return prefix;
+        }
+        Hasher hasher = new Hasher();
+        for (Object param : params) {
+            hash(hasher, param, 0);
+        }
+        return hasher.appendHex(new StringBuilder(prefix.length() + 33).append(prefix).append(':')).toString();
+    }
+
+    private static String prefix(Class<?> targetClass, Method method) {
+        StringBuilder prefix = new StringBuilder(targetClass.getName()).append('.').append(method.getName());
+        long overloads = Arrays.stream(targetClass.getMethods()).filter(m -> m.getName().equals(method.getName())).count();
+        if (overloads > 1) {
+            StringJoiner types = new StringJoiner(",", "(", ")");
+            for (Class<?> type : method.getParameterTypes()) {
+                types.add(type.getTypeName());
+            }
+            prefix.append(types);
+        }
+        return prefix.toString();
+    }
+
+    private void hash(Hasher hasher, Object value, int depth) {
+        if (value == null) {
+            hasher.add(NULL);
+        } else if (value instanceof CharSequence) {
+            hasher.add(STRING);
+            hasher.add((CharSequence) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            hasher.add(INTEGRAL);
+            hasher.add(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            hasher.add(DECIMAL);
+            hasher.add(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            hasher.add(BOOLEAN);
+            hasher.add((Boolean) value ? 1 : 0);
+        } else if (value instanceof Character) {
+            hasher.add(CHAR);
+            hasher.add((Character) value);
+        } else if (value instanceof Enum) {
+            hasher.add(ENUM);
+            hasher.add(((Enum<?>) value).getDeclaringClass().getName());
+            hasher.add(((Enum<?>) value).name());
+        } else if (value instanceof Date) {
+            hasher.add(DATE);
+            hasher.add(((Date) value).getTime());
+        } else if (depth >= MAX_DEPTH) {
+            // 嵌套过深时只取类型，避免循环引用
+            hasher.add(OTHER);
+            hasher.add(value.getClass().getName());
+        } else if (value instanceof Set) {
+            hasher.add(SET);
+            hashUnordered(hasher, (Set<?>) value, depth);
+        } else if (value instanceof Map) {
+            hasher.add(MAP);
+            hashUnordered(hasher, ((Map<?, ?>) value).entrySet(), depth);
+        } else if (value instanceof Map.Entry) {
+            hash(hasher, ((Map.Entry<?, ?>) value).getKey(), depth + 1);
+            hash(hasher, ((Map.Entry<?, ?>) value).getValue(), depth + 1);
+        } else if (value instanceof Iterable) {
+            hasher.add(LIST);
+            long size = 0;
+            for (Object element : (Iterable<?>) value) {
+                hash(hasher, element, depth + 1);
+                size++;
+            }
+            hasher.add(size);
+        } else if (value instanceof Object[]) {
+            hasher.add(LIST);
+            for (Object element : (Object[]) value) {
+                hash(hasher, element, depth + 1);
+            }
+            hasher.add(((Object[]) value).length);
+        } else if (value.getClass().isArray() || isJdkType(value.getClass())) {
+            // 基本类型数组、BigDecimal 等 JDK 类型按字符串计算
+            hasher.add(OTHER);
+            hasher.add(value.getClass().getName());
+            hasher.add(value.getClass().isArray() ? Arrays.deepToString(new Object[]{value}) : value.toString());
+        } else {
+            hasher.add(OBJECT);
+            hasher.add(value.getClass().getName());
+            try {
+                for (Field field : fields(value.getClass())) {
+                    hash(hasher, field.get(value), depth + 1);
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 各元素单独计算后求和，与遍历顺序无关
+     */
+    private void hashUnordered(Hasher hasher, Collection<?> values, int depth) {
+        long sum1 = 0;
+        long sum2 = 0;
+        for (Object value : values) {
+            Hasher element = new Hasher();
+            hash(element, value, depth + 1);
+            element.finish();
+            sum1 += element.h1;
+            sum2 += element.h2;
+        }
+        hasher.add(sum1);
+        hasher.add(sum2);
+        hasher.add(values.size());
+    }
+
+    private Field[] fields(Class<?> type) {
+        Field[] result = fields.get(type);
+        if (result == null) {
+            List<Field> list = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        list.add(field);
+                    }
+                }
+            }
+            list.sort(Comparator.comparing(Field::getName));
+            result = list.toArray(new Field[0]);
+            fields.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.");
+    }
+
+    /**
+     * MurmurHash3 x64 128 位的分块混合，逐个 long 输入
+     */
+    private static final class Hasher {
+
+        private long h1 = SEED;
+        private long h2 = SEED;
+        private long length;
+
+        void add(long value) {
+            long k1 = value * C1;
+            k1 = Long.rotateLeft(k1, 31) * C2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            long k2 = value * C2;
+            k2 = Long.rotateLeft(k2, 33) * C1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+            length++;
+        }
+
+        void add(CharSequence value) {
+            int length = value.length();
+            add(length);
+            long packed = 0;
+            for (int i = 0; i < length; i++) {
+                packed = packed << 16 | value.charAt(i);
+                if ((i & 3) == 3) {
+                    add(packed);
+                    packed = 0;
+                }
+            }
+            if ((length & 3) != 0) {
+                add(packed);
+            }
+        }
+
+        void finish() {
+            h1 ^= length;
+            h2 ^= length;
+            h1 += h2;
+            h2 += h1;
+            h1 = fmix64(h1);
+            h2 = fmix64(h2);
+            h1 += h2;
+            h2 += h1;
+        }
+
+        StringBuilder appendHex(StringBuilder builder) {
+            finish();
+            appendHex(builder, h1);
+            appendHex(builder, h2);
+            return builder;
+        }
+
+        private static void appendHex(StringBuilder builder, long value) {
+            for (int shift = 60; shift >= 0; shift -= 4) {
+                builder.append(HEX[(int) (value >>> shift) & 0xF]);
+            }
+        }
+
+        private static long fmix64(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import com.admin.utils.Histogram;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 缓存与 Redis 命令的运行指标：
+ * <ul>
+ *     <li>按缓存名称统计本地与 Redis 命中、未命中、重建耗时、Redis 读写耗时、序列化后的数据大小及失效次数</li>
+ *     <li>按命令统计 RedisTemplate 的执行耗时，pipeline 按整批统计为 PIPELINE</li>
+ *     <li>较大值的压缩情况，全部值合计并按缓存名称统计</li>
+ *     <li>RedisUtils 删除缓存的次数、删除的 key 数量及耗时</li>
+ * </ul>
+ * 耗时单位为微秒，数据大小单位为字节
+ *
+ * @author adyfang
+ */
+public class CacheMetrics {
+
+    private final ConcurrentMap<String, CacheStat> caches = new ConcurrentHashMap<>(16);
+    private final ConcurrentMap<String, Histogram> commands = new ConcurrentHashMap<>(64);
+    @Getter
+    private final CompressionStat compression = new CompressionStat();
+    @Getter
+    private final DeleteStat delete = new DeleteStat();
+
+    /**
+     * @param name 缓存名称
+     * @return 该缓存的指标
+     */
+    public CacheStat cache(String name) {
+        return caches.computeIfAbsent(name, CacheStat::new);
+    }
+
+    /**
+     * 记录 Redis 命令耗时
+     *
+     * @param command 命令
+     * @param nanos   耗时，单位纳秒
+     */
+    public void recordCommand(String command, long nanos) {
+        commands.computeIfAbsent(command, key -> new Histogram()).record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @return 各缓存及命令的指标
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> cacheStats = new TreeMap<>();
+        caches.forEach((name, stat) -> cacheStats.put(name, stat.toMap()));
+        Map<String, Object> commandStats = new TreeMap<>();
+        commands.forEach((command, histogram) -> commandStats.put(command, histogram.toMap()));
+        Map<String, Object> map = new LinkedHashMap<>(4);
+        map.put("caches", cacheStats);
+        map.put("commands", commandStats);
+        map.put("compression", compression.toMap());
+        map.put("delete", delete.toMap());
+        return map;
+    }
+
+    /**
+     * @return Prometheus 文本格式的指标
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        Map<String, CacheStat> sortedCaches = new TreeMap<>(caches);
+        counter(out, "cache_gets_total", "缓存读取次数，result 为 local、redis、stale 或 miss", sortedCaches, (stat, labels) -> {
+            sample(out, "cache_gets_total", labels + ",result=\"local\"", stat.localHits.sum());
+            sample(out, "cache_gets_total", labels + ",result=\"redis\"", stat.redisHits.sum());
+            sample(out, "cache_gets_total", labels + ",result=\"stale\"", stat.staleHits.sum());
+            sample(out, "cache_gets_total", labels + ",result=\"miss\"", stat.misses.sum());
+        });
+        counter(out, "cache_puts_total", "缓存写入次数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_puts_total", labels, stat.puts.sum()));
+        counter(out, "cache_evictions_total", "缓存失效次数，type 为 evict、clear 或 local（本地缓存超出容量）", sortedCaches, (stat, labels) -> {
+            sample(out, "cache_evictions_total", labels + ",type=\"evict\"", stat.evictions.sum());
+            sample(out, "cache_evictions_total", labels + ",type=\"clear\"", stat.clears.sum());
+            sample(out, "cache_evictions_total", labels + ",type=\"local\"", stat.localStats().evictionCount());
+        });
+        counter(out, "cache_load_failures_total", "缓存重建失败次数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_load_failures_total", labels, stat.loadFailures.sum()));
+        counter(out, "cache_lease_waits_total", "等待其它节点重建的次数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_lease_waits_total", labels, stat.leaseWaits.sum()));
+        counter(out, "cache_errors_total", "缓存读写 Redis 异常次数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_errors_total", labels, stat.errors.sum()));
+        help(out, "cache_local_size", "gauge", "本地缓存条数");
+        sortedCaches.forEach((name, stat) -> sample(out, "cache_local_size", label("cache", name), stat.localSize()));
+        histogram(out, "cache_load_micros", "缓存重建耗时（微秒）", sortedCaches, stat -> stat.loadTime);
+        histogram(out, "cache_redis_micros", "缓存读写 Redis 耗时（微秒）", sortedCaches, stat -> stat.redisTime);
+        histogram(out, "cache_payload_bytes", "缓存序列化后的数据大小（字节）", sortedCaches, stat -> stat.payloadSize);
+        counter(out, "cache_compressed_total", "缓存写入时压缩的次数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_compressed_total", labels, stat.compression.count.sum()));
+        counter(out, "cache_compressed_raw_bytes_total", "缓存压缩前的字节数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_compressed_raw_bytes_total", labels, stat.compression.rawBytes.sum()));
+        counter(out, "cache_compressed_stored_bytes_total", "缓存压缩后保存的字节数", sortedCaches,
+                (stat, labels) -> sample(out, "cache_compressed_stored_bytes_total", labels, stat.compression.storedBytes.sum()));
+        help(out, "redis_compressed_total", "counter", "全部值压缩的次数，包括压缩效果不足按原样保存的");
+        out.append("redis_compressed_total ").append(compression.count.sum()).append('\n');
+        help(out, "redis_compressed_raw_bytes_total", "counter", "全部值压缩前的字节数");
+        out.append("redis_compressed_raw_bytes_total ").append(compression.rawBytes.sum()).append('\n');
+        help(out, "redis_compressed_stored_bytes_total", "counter", "全部值压缩后保存的字节数");
+        out.append("redis_compressed_stored_bytes_total ").append(compression.storedBytes.sum()).append('\n');
+        help(out, "redis_compress_micros", "histogram", "压缩耗时（微秒）");
+        compression.time.writeTo(out, "redis_compress_micros", null);
+        help(out, "redis_cache_delete_total", "counter", "RedisUtils 删除缓存的次数");
+        out.append("redis_cache_delete_total ").append(delete.calls.sum()).append('\n');
+        help(out, "redis_cache_deleted_keys_total", "counter", "RedisUtils 删除的 key 数量");
+        out.append("redis_cache_deleted_keys_total ").append(delete.keys.sum()).append('\n');
+        help(out, "redis_cache_delete_micros", "histogram", "RedisUtils 删除缓存耗时（微秒）");
+        delete.time.writeTo(out, "redis_cache_delete_micros", null);
+        help(out, "redis_command_micros", "histogram", "Redis 命令耗时（微秒）");
+        new TreeMap<>(commands).forEach((command, histogram) ->
+                histogram.writeTo(out, "redis_command_micros", label("command", command)));
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, Map<String, CacheStat> caches,
+                                BiConsumer<CacheStat, String> samples) {
+        help(out, name, "counter", help);
+        caches.forEach((cacheName, stat) -> samples.accept(stat, label("cache", cacheName)));
+    }
+
+    private static void histogram(StringBuilder out, String name, String help, Map<String, CacheStat> caches,
+                                  Function<CacheStat, Histogram> histogram) {
+        help(out, name, "histogram", help);
+        caches.forEach((cacheName, stat) -> histogram.apply(stat).writeTo(out, name, label("cache", cacheName)));
+    }
+
+    private static void help(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * 单个缓存的指标
+     */
+    @Getter
+    public static class CacheStat {
+
+        private final String name;
+        private final LongAdder localHits = new LongAdder();
+        private final LongAdder redisHits = new LongAdder();
+        private final LongAdder staleHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder clears = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private final LongAdder leaseWaits = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Histogram loadTime = new Histogram();
+        private final Histogram redisTime = new Histogram();
+        private final Histogram payloadSize = new Histogram();
+        private final CompressionStat compression = new CompressionStat();
+        private volatile Cache<String, Object> localCache;
+
+        CacheStat(String name) {
+            this.name = name;
+        }
+
+        void setLocalCache(Cache<String, Object> localCache) {
+            this.localCache = localCache;
+        }
+
+        /**
+         * 记录重建耗时
+         *
+         * @param nanos 耗时，单位纳秒
+         */
+        void recordLoad(long nanos) {
+            loadTime.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+
+        /**
+         * 记录一次 Redis 读写
+         *
+         * @param nanos 耗时，单位纳秒
+         * @param bytes 数据大小，未读到数据时为负数
+         */
+        void recordRedis(long nanos, int bytes) {
+            redisTime.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            if (bytes >= 0) {
+                payloadSize.record(bytes);
+            }
+        }
+
+        long localSize() {
+            Cache<String, Object> cache = localCache;
+            return cache == null ? 0 : cache.estimatedSize();
+        }
+
+        CacheStats localStats() {
+            Cache<String, Object> cache = localCache;
+            return cache == null ? CacheStats.empty() : cache.stats();
+        }
+
+        Map<String, Object> toMap() {
+            long hits = localHits.sum() + redisHits.sum() + staleHits.sum();
+            long total = hits + misses.sum();
+            Map<String, Object> map = new LinkedHashMap<>(20);
+            map.put("localHits", localHits.sum());
+            map.put("redisHits", redisHits.sum());
+            map.put("staleHits", staleHits.sum());
+            map.put("misses", misses.sum());
+            map.put("hitRate", total == 0 ? 0 : (double) hits / total);
+            map.put("puts", puts.sum());
+            map.put("evictions", evictions.sum());
+            map.put("clears", clears.sum());
+            map.put("localSize", localSize());
+            map.put("localEvictions", localStats().evictionCount());
+            map.put("loadFailures", loadFailures.sum());
+            map.put("leaseWaits", leaseWaits.sum());
+            map.put("errors", errors.sum());
+            map.put("loadMicros", loadTime.toMap());
+            map.put("redisMicros", redisTime.toMap());
+            map.put("payloadBytes", payloadSize.toMap());
+            map.put("compression", compression.toMap());
+            return map;
+        }
+    }
+
+    /**
+     * 压缩前后的字节数，压缩率为压缩后与压缩前的比值
+     */
+    @Getter
+    public static class CompressionStat {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder rawBytes = new LongAdder();
+        private final LongAdder storedBytes = new LongAdder();
+        private final Histogram time = new Histogram();
+
+        /**
+         * @param raw    压缩前的字节数
+         * @param stored 保存的字节数
+         * @param nanos  压缩耗时，单位纳秒，未知时为负数
+         */
+        void record(int raw, int stored, long nanos) {
+            count.increment();
+            rawBytes.add(raw);
+            storedBytes.add(stored);
+            if (nanos >= 0) {
+                time.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long raw = rawBytes.sum();
+            Map<String, Object> map = new LinkedHashMap<>(8);
+            map.put("count", count.sum());
+            map.put("rawBytes", raw);
+            map.put("storedBytes", storedBytes.sum());
+            map.put("ratio", raw == 0 ? 1 : (double) storedBytes.sum() / raw);
+            map.put("micros", time.toMap());
+            return map;
+        }
+    }
+
+    /**
+     * RedisUtils 删除缓存的次数、删除的 key 数量及耗时，按通配符删除时包括扫描耗时
+     */
+    @Getter
+    public static class DeleteStat {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder keys = new LongAdder();
+        private final Histogram time = new Histogram();
+
+        /**
+         * @param keys  删除的 key 数量
+         * @param nanos 耗时，单位纳秒
+         */
+        public void record(long keys, long nanos) {
+            calls.increment();
+            this.keys.add(keys);
+            time.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>(4);
+            map.put("calls", calls.sum());
+            map.put("deletedKeys", keys.sum());
+            map.put("micros", time.toMap());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * 启动时预热缓存的加载项，各模块实现该接口并声明为 Bean，
+ * 按 cache-warm-up.loaders 中配置的名称启用，返回的任务并行执行
+ *
+ * @author adyfang
+ */
+public interface CacheWarmUpLoader {
+
+    /**
+     * @return 名称，配置启用的加载项时使用
+     */
+    String getName();
+
+    /**
+     * 生成预热任务，每个任务通过 Spring 代理调用带缓存的方法
+     *
+     * @return 预热任务
+     */
+    Collection<Runnable> tasks();
+
+    /**
+     * @param name  名称
+     * @param tasks 生成预热任务
+     * @return /
+     */
+    static CacheWarmUpLoader of(String name, Supplier<Collection<Runnable>> tasks) {
+        return new CacheWarmUpLoader() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Collection<Runnable> tasks() {
+                return tasks.get();
+            }
+        };
+    }
+}
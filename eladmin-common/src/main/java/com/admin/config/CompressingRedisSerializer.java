@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 压缩较大的值，格式为：
+ * <pre>
+ * 0xC5 | 原始长度(varint) | zlib 数据
+ * </pre>
+ * 读取时只有同时满足以下条件才按压缩数据处理，否则原样交给下层反序列化：
+ * <ul>
+ *     <li>首字节为 0xC5，JSON 与二进制编码的首字节都不会是 0xC5</li>
+ *     <li>原始长度为不超过 5 个字节的 varint</li>
+ *     <li>其后是合法的 zlib 头：压缩方法为 deflate，且头两个字节按大端组成的数能被 31 整除</li>
+ * </ul>
+ * 因此压缩与未压缩的数据可以共存，开启压缩前写入、恰好以 0xC5 开头的旧值也能读取。
+ * 修改格式时必须保持这一约定，否则 Redis 中已有的数据将无法读取。
+ * 阈值小于等于 0 时不压缩，所有节点升级后再开启。字符串、数字与布尔值不压缩，Lua 脚本需要直接读取
+ *
+ * @author adyfang
+ */
+class CompressingRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xC5;
+
+    /**
+     * 原始长度 varint 的最大字节数
+     */
+    private static final int MAX_VARINT_LENGTH = 5;
+
+    /**
+     * 压缩后不小于原始长度的这个比例时按原样保存
+     */
+    private static final double MIN_SAVING = 0.9;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private final RedisSerializer<Object> delegate;
+    private final int threshold;
+    private final CacheMetrics metrics;
+
+    CompressingRedisSerializer(RedisSerializer<Object> delegate, int threshold, CacheMetrics metrics) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public byte[] serialize(Object o) {
+        byte[] bytes = delegate.serialize(o);
+        if (threshold <= 0 || bytes == null || bytes.length < threshold
+                || o instanceof CharSequence || o instanceof Number || o instanceof Boolean) {
+            return bytes;
+        }
+        long start = System.nanoTime();
+        byte[] compressed = compress(bytes);
+        boolean saved = compressed.length < bytes.length * MIN_SAVING;
+        metrics.getCompression().record(bytes.length, saved ? compressed.length : bytes.length,
+                System.nanoTime() - start);
+        return saved ? compressed : bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        return delegate.deserialize(isCompressed(bytes) ? decompress(bytes) : bytes);
+    }
+
+    /**
+     * @param bytes 保存的数据
+     * @return 压缩前的长度，未压缩时返回 -1
+     */
+    static int originalLength(byte[] bytes) {
+        int offset = dataOffset(bytes);
+        if (offset < 0) {
+            return -1;
+        }
+        int length = 0;
+        for (int i = 1, shift = 0; i < offset; i++, shift += 7) {
+            length |= (bytes[i] & 0x7F) << shift;
+        }
+        return length;
+    }
+
+    static boolean isCompressed(byte[] bytes) {
+        return dataOffset(bytes) > 0;
+    }
+
+    /**
+     * 校验头部，见类注释中的约定
+     *
+     * @param bytes 保存的数据
+     * @return zlib 数据的起始位置，不是压缩数据时返回 -1
+     */
+    private static int dataOffset(byte[] bytes) {
+        if (bytes == null || bytes.length < 4 || bytes[0] != MAGIC) {
+            return -1;
+        }
+        int offset = 1;
+        while ((bytes[offset] & 0x80) != 0) {
+            offset++;
+            if (offset > MAX_VARINT_LENGTH || offset >= bytes.length) {
+                return -1;
+            }
+        }
+        offset++;
+        if (offset + 1 >= bytes.length) {
+            return -1;
+        }
+        int cmf = bytes[offset] & 0xFF;
+        int flg = bytes[offset + 1] & 0xFF;
+        return (cmf & 0x0F) == Deflater.DEFLATED && ((cmf << 8) | flg) % 31 == 0 ? offset : -1;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 16);
+        out.write(MAGIC);
+        for (int length = bytes.length; ; length >>>= 7) {
+            if ((length & ~0x7F) == 0) {
+                out.write(length);
+                break;
+            }
+            out.write((length & 0x7F) | 0x80);
+        }
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(bytes);
+        deflater.finish();
+        byte[] buffer = new byte[Math.min(bytes.length, 8192)];
+        while (!deflater.finished()) {
+            int count = deflater.deflate(buffer);
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        int length = originalLength(bytes);
+        int offset = dataOffset(bytes);
+        if (length < 0 || offset < 0) {
+            throw new SerializationException("压缩数据长度错误");
+        }
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(bytes, offset, bytes.length - offset);
+        byte[] result = new byte[length];
+        try {
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int count = inflater.inflate(result, read, length - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != length) {
+                throw new SerializationException("压缩数据不完整");
+            }
+        } catch (DataFormatException e) {
+            throw new SerializationException("解压失败：" + e.getMessage(), e);
+        }
+        return result;
+    }
+}
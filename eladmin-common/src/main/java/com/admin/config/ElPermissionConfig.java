@@ -15,14 +15,14 @@
  */
 package com.admin.config;
 
-import com.admin.utils.SecurityUtils;
-import org.springframework.security.core.GrantedAuthority;
+import com.admin.base.BaseUserDetails;
+import com.admin.exception.BadRequestException;
+import com.admin.utils.PermissionSet;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-
 /**
  * @author Zheng Jie
  */
@@ -30,9 +30,26 @@ import java.util.stream.Collectors;
 public class ElPermissionConfig {
 
     public Boolean check(String... permissions) {
-        // 获取当前用户的所有权限
-        List<String> elPermissions = SecurityUtils.getCurrentUser().getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
-        // 判断当前用户的所有权限是否包含接口上定义的权限
-        return elPermissions.contains("admin") || Arrays.stream(permissions).anyMatch(elPermissions::contains);
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new BadRequestException(HttpStatus.UNAUTHORIZED, "当前登录状态过期");
+        }
+        return permissions(authentication).check(permissions);
+    }
+
+    /**
+     * 优先使用验证 Token 时生成的权限位图，不再重新加载用户信息
+     *
+     * @param authentication 当前鉴权信息
+     * @return /
+     */
+    private PermissionSet permissions(Authentication authentication) {
+        if (authentication.getDetails() instanceof PermissionSet) {
+            return (PermissionSet) authentication.getDetails();
+        }
+        if (authentication.getPrincipal() instanceof BaseUserDetails) {
+            return ((BaseUserDetails) authentication.getPrincipal()).getPermissions();
+        }
+        return PermissionSet.of(authentication.getAuthorities());
     }
 }
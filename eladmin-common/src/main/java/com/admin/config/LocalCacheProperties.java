@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 缓存本地一级缓存配置，位于 Redis 之前，按缓存名称单独配置
+ *
+ * @author adyfang
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "local-cache")
+public class LocalCacheProperties {
+
+    /**
+     * 是否开启本地缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 默认每个缓存的最大条数，为 0 时不使用本地缓存
+     */
+    private long maximumSize = 1000;
+
+    /**
+     * 默认写入后的过期时间，单位毫秒，节点间失效通知丢失时以此兜底
+     */
+    private long ttl = 60000;
+
+    /**
+     * 缓存未命中时重建的租约时间，单位毫秒，同一个 key 同时只有一个节点重建，应大于重建耗时
+     */
+    private long leaseTime = 5000;
+
+    /**
+     * 其它节点持有租约时等待其写入 Redis 的最长时间，单位毫秒，超时后自行重建
+     */
+    private long leaseWait = 3000;
+
+    /**
+     * 本地缓存过期后保留旧值的时间，单位毫秒，重建期间其它请求直接返回旧值，为 0 时不保留。
+     * 只保留自然过期的值，数据变更导致的失效不保留
+     */
+    private long staleTtl = 30000;
+
+    /**
+     * 不保留旧值的缓存名称，权限相关的数据变更后不能再返回旧值
+     */
+    private Set<String> noStaleCaches = new HashSet<>(Arrays.asList("user", "role", "menu", "data"));
+
+    /**
+     * 按缓存名称单独配置，未配置的使用默认值
+     */
+    private Map<String, Spec> caches = new HashMap<>();
+
+    /**
+     * @param name 缓存名称
+     * @return 该缓存的配置，不使用本地缓存时返回空
+     */
+    public Spec getSpec(String name) {
+        if (!enabled) {
+            return null;
+        }
+        Spec spec = caches.get(name);
+        long size = spec != null && spec.getMaximumSize() != null ? spec.getMaximumSize() : maximumSize;
+        long expire = spec != null && spec.getTtl() != null ? spec.getTtl() : ttl;
+        if (size <= 0) {
+            return null;
+        }
+        Spec result = new Spec();
+        result.setMaximumSize(size);
+        result.setTtl(expire);
+        result.setStaleTtl(noStaleCaches.contains(name) ? 0L : staleTtl);
+        return result;
+    }
+
+    @Data
+    public static class Spec {
+
+        private Long maximumSize;
+
+        private Long ttl;
+
+        /**
+         * 保留旧值的时间，由全局配置及 noStaleCaches 决定
+         */
+        private Long staleTtl;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+
+/**
+ * 按缓存名称记录 Redis 读写耗时、序列化后的数据大小及压缩率
+ *
+ * @author adyfang
+ * @see CacheMetrics
+ */
+class MeteredRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+    private final CacheMetrics metrics;
+
+    MeteredRedisCacheWriter(RedisCacheWriter delegate, CacheMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        long start = System.nanoTime();
+        delegate.put(name, key, value, ttl);
+        CacheMetrics.CacheStat stat = metrics.cache(name);
+        stat.recordRedis(System.nanoTime() - start, value.length);
+        int original = CompressingRedisSerializer.originalLength(value);
+        if (original >= 0) {
+            stat.getCompression().record(original, value.length, -1);
+        }
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        long start = System.nanoTime();
+        byte[] value = delegate.get(name, key);
+        metrics.cache(name).recordRedis(System.nanoTime() - start, value == null ? -1 : value.length);
+        return value;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        long start = System.nanoTime();
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl);
+        metrics.cache(name).recordRedis(System.nanoTime() - start, existing == null ? value.length : existing.length);
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        long start = System.nanoTime();
+        delegate.remove(name, key);
+        metrics.cache(name).recordRedis(System.nanoTime() - start, -1);
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        long start = System.nanoTime();
+        delegate.clean(name, pattern);
+        metrics.cache(name).recordRedis(System.nanoTime() - start, -1);
+    }
+}
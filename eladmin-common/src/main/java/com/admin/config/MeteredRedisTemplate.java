@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Locale;
+
+/**
+ * 按命令记录执行耗时的 RedisTemplate，RedisUtils 及其它通过模板执行的命令都会被统计。
+ * 命令名称取连接的方法名，如 hGetAll 记为 HGETALL；pipeline 与事务中的命令只是排队，
+ * 不单独统计，pipeline 按整批记为 PIPELINE
+ *
+ * @author adyfang
+ * @see CacheMetrics
+ */
+class MeteredRedisTemplate extends RedisTemplate<Object, Object> {
+
+    private static final String PIPELINE = "PIPELINE";
+
+    private final CacheMetrics metrics;
+
+    MeteredRedisTemplate(CacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected RedisConnection preProcessConnection(RedisConnection connection, boolean existingConnection) {
+        return (RedisConnection) proxy(connection, connection);
+    }
+
+    private Object proxy(Object target, RedisConnection connection) {
+        return Proxy.newProxyInstance(target.getClass().getClassLoader(), ClassUtils.getAllInterfaces(target),
+                new MeteredInvocationHandler(target, connection));
+    }
+
+    private class MeteredInvocationHandler implements InvocationHandler {
+
+        private final Object target;
+        private final RedisConnection connection;
+
+        MeteredInvocationHandler(Object target, RedisConnection connection) {
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Class<?> declaringClass = method.getDeclaringClass();
+            String name = method.getName();
+            String command;
+            if (declaringClass == Object.class) {
+                return invoke(method, args);
+            } else if (declaringClass == RedisConnection.class) {
+                // 连接本身的方法，只统计 pipeline 的执行
+                if (!"closePipeline".equals(name)) {
+                    return invoke(method, args);
+                }
+                command = PIPELINE;
+            } else if (name.endsWith("Commands") && method.getParameterCount() == 0
+                    && method.getReturnType().isInterface()) {
+                // stringCommands() 等按类型分组的命令，返回的对象同样统计
+                Object commands = invoke(method, args);
+                return commands == null ? null : proxy(commands, connection);
+            } else if (connection.isPipelined() || connection.isQueueing()) {
+                return invoke(method, args);
+            } else {
+                command = name.toUpperCase(Locale.ROOT);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(method, args);
+            } finally {
+                metrics.recordCommand(command, System.nanoTime() - start);
+            }
+        }
+
+        private Object invoke(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
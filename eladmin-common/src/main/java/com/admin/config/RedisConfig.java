@@ -16,17 +16,20 @@
 package com.admin.config;
 
 import cn.hutool.core.lang.Assert;
+import com.admin.utils.BinaryCodec;
 import com.admin.utils.StringUtils;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.parser.ParserConfig;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.interceptor.CacheErrorHandler;
@@ -34,17 +37,20 @@ import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author Zheng Jie
@@ -57,28 +63,60 @@ import java.util.Map;
 @EnableConfigurationProperties(RedisProperties.class)
 public class RedisConfig extends CachingConfigurerSupport {
 
+    /**
+     * 写入 Redis 时使用二进制编码
+     */
+    private static final String BINARY = "binary";
+
+    @Value("${spring.redis.serializer:json}")
+    private String serializer;
+
+    /**
+     * 序列化后超过该字节数的值压缩保存，小于等于 0 时不压缩
+     */
+    @Value("${spring.redis.compress-threshold:0}")
+    private int compressThreshold;
+
+    /**
+     * 二进制编码，类型编号由各模块的 RedisTypeRegistrar 注册
+     */
+    @Bean
+    public BinaryCodec binaryCodec(ObjectProvider<RedisTypeRegistrar> registrars) {
+        BinaryCodec codec = new BinaryCodec();
+        registrars.orderedStream().forEach(registrar -> registrar.register(codec));
+        return codec;
+    }
+
     /**
      * 设置 redis 数据默认过期时间，默认2小时
      * 设置@cacheable 序列化方式
      */
     @Bean
-    public RedisCacheConfiguration redisCacheConfiguration() {
-        FastJsonRedisSerializer<Object> fastJsonRedisSerializer = new FastJsonRedisSerializer<>(Object.class);
+    public RedisCacheConfiguration redisCacheConfiguration(BinaryCodec binaryCodec) {
         RedisCacheConfiguration configuration = RedisCacheConfiguration.defaultCacheConfig();
-        configuration = configuration.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(fastJsonRedisSerializer)).entryTtl(Duration.ofHours(2));
+        configuration = configuration.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer(binaryCodec))).entryTtl(Duration.ofHours(2));
         return configuration;
     }
 
+    /**
+     * 缓存及 Redis 命令的运行指标
+     */
+    @Bean
+    public CacheMetrics cacheMetrics() {
+        return new CacheMetrics();
+    }
+
     @SuppressWarnings("all")
     @Bean(name = "redisTemplate")
     @ConditionalOnMissingBean(name = "redisTemplate")
-    public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
-        RedisTemplate<Object, Object> template = new RedisTemplate<>();
+    public RedisTemplate<Object, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory, BinaryCodec binaryCodec) {
+        // 按命令统计耗时
+        RedisTemplate<Object, Object> template = new MeteredRedisTemplate(cacheMetrics());
         //序列化
-        FastJsonRedisSerializer<Object> fastJsonRedisSerializer = new FastJsonRedisSerializer<>(Object.class);
-        // value值的序列化采用fastJsonRedisSerializer
-        template.setValueSerializer(fastJsonRedisSerializer);
-        template.setHashValueSerializer(fastJsonRedisSerializer);
+        RedisSerializer<Object> valueSerializer = valueSerializer(binaryCodec);
+        // value值的序列化采用fastJsonRedisSerializer，或按配置采用二进制编码
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
         // 全局开启AutoType，这里方便开发，使用全局的方式
         ParserConfig.getGlobalInstance().setAutoTypeSupport(true);
         // 建议使用这种方式，小范围指定白名单
@@ -90,30 +128,56 @@ public class RedisConfig extends CachingConfigurerSupport {
         return template;
     }
 
+    /**
+     * 两级缓存，按 local-cache 配置在 Redis 缓存前加一层本地缓存，
+     * 各节点通过 Redis 发布订阅同步失效
+     */
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                     RedisCacheConfiguration redisCacheConfiguration,
+                                     LocalCacheProperties localCacheProperties,
+                                     RedisTemplate<Object, Object> redisTemplate,
+                                     RedisMessageListenerContainer redisMessageListenerContainer) {
+        CacheMetrics cacheMetrics = cacheMetrics();
+        RedisCacheWriter cacheWriter = new MeteredRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory), cacheMetrics);
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
+                .cacheDefaults(redisCacheConfiguration)
+                .build();
+        redisCacheManager.initializeCaches();
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, localCacheProperties,
+                redisTemplate, cacheMetrics);
+        redisMessageListenerContainer.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.EVICT_CHANNEL));
+        return cacheManager;
+    }
+
+    /**
+     * 始终能读取 JSON 与二进制两种数据，写入方式由 spring.redis.serializer 决定，
+     * 所有节点升级后再切换为 binary，切换前后的数据都能读取。
+     * 较大的值按 spring.redis.compress-threshold 压缩，压缩的数据同样始终能读取
+     */
+    private RedisSerializer<Object> valueSerializer(BinaryCodec binaryCodec) {
+        return new CompressingRedisSerializer(new BinaryRedisSerializer(binaryCodec,
+                new FastJsonRedisSerializer<>(Object.class), BINARY.equals(serializer)), compressThreshold, cacheMetrics());
+    }
+
+    /**
+     * Redis 消息监听容器，用于集群各节点之间的本地缓存失效通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
     /**
      * 自定义缓存key生成策略，默认将使用该策略
      */
     @Bean
     @Override
     public KeyGenerator keyGenerator() {
-        return (target, method, params) -> {
-            Map<String, Object> container = new HashMap<>(3);
-            Class<?> targetClassClass = target.getClass();
-            // 类地址
-            container.put("class", targetClassClass.toGenericString());
-            // 方法名称
-            container.put("methodName", method.getName());
-            // 包名称
-            container.put("package", targetClassClass.getPackage());
-            // 参数列表
-            for (int i = 0; i < params.length; i++) {
-                container.put(String.valueOf(i), params[i]);
-            }
-            // 转为JSON字符串
-            String jsonString = JSON.toJSONString(container);
-            // 做SHA256 Hash计算，得到一个SHA256摘要作为Key
-            return DigestUtils.sha256Hex(jsonString);
-        };
+        return new CacheKeyGenerator();
     }
 
     @Bean
@@ -121,24 +185,29 @@ public class RedisConfig extends CachingConfigurerSupport {
     public CacheErrorHandler errorHandler() {
         // 异常处理，当Redis发生异常时，打印日志，但是程序正常走
         log.info("初始化 -> [{}]", "Redis CacheErrorHandler");
+        CacheMetrics cacheMetrics = cacheMetrics();
         return new CacheErrorHandler() {
             @Override
             public void handleCacheGetError(RuntimeException e, Cache cache, Object key) {
+                cacheMetrics.cache(cache.getName()).getErrors().increment();
                 log.error("Redis occur handleCacheGetError：key -> [{}]", key, e);
             }
 
             @Override
             public void handleCachePutError(RuntimeException e, Cache cache, Object key, Object value) {
+                cacheMetrics.cache(cache.getName()).getErrors().increment();
                 log.error("Redis occur handleCachePutError：key -> [{}]；value -> [{}]", key, value, e);
             }
 
             @Override
             public void handleCacheEvictError(RuntimeException e, Cache cache, Object key) {
+                cacheMetrics.cache(cache.getName()).getErrors().increment();
                 log.error("Redis occur handleCacheEvictError：key -> [{}]", key, e);
             }
 
             @Override
             public void handleCacheClearError(RuntimeException e, Cache cache) {
+                cacheMetrics.cache(cache.getName()).getErrors().increment();
                 log.error("Redis occur handleCacheClearError：", e);
             }
         };
@@ -180,6 +249,53 @@ class FastJsonRedisSerializer<T> implements RedisSerializer<T> {
 
 }
 
+/**
+ * Value 二进制序列化，字符串、数字等简单值仍按 JSON 写入，Lua 脚本可以直接读取；
+ * 无法二进制编码的对象同样按 JSON 写入
+ *
+ * @author adyfang
+ */
+@Slf4j
+class BinaryRedisSerializer implements RedisSerializer<Object> {
+
+    private final BinaryCodec codec;
+    private final FastJsonRedisSerializer<Object> json;
+    private final boolean writeBinary;
+
+    BinaryRedisSerializer(BinaryCodec codec, FastJsonRedisSerializer<Object> json, boolean writeBinary) {
+        this.codec = codec;
+        this.json = json;
+        this.writeBinary = writeBinary;
+    }
+
+    @Override
+    public byte[] serialize(Object o) {
+        if (o == null) {
+            return new byte[0];
+        }
+        if (writeBinary && !(o instanceof CharSequence || o instanceof Number || o instanceof Boolean)) {
+            try {
+                return codec.encode(o);
+            } catch (IllegalArgumentException e) {
+                log.debug("二进制编码失败，使用 JSON：{}", e.getMessage());
+            }
+        }
+        return json.serialize(o);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+        if (BinaryCodec.isBinary(bytes)) {
+            try {
+                return codec.decode(bytes);
+            } catch (IllegalArgumentException e) {
+                throw new SerializationException("二进制解码失败：" + e.getMessage(), e);
+            }
+        }
+        return json.deserialize(bytes);
+    }
+}
+
 /**
  * 重写序列化器
  *
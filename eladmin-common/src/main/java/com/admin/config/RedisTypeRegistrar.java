@@ -0,0 +1,34 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import com.admin.utils.BinaryCodec;
+
+/**
+ * 向 Redis 二进制编码注册类型编号，各模块实现该接口并声明为 Bean，
+ * 编号一经使用不可修改或复用，新增类型只能使用新编号
+ *
+ * @author adyfang
+ */
+public interface RedisTypeRegistrar {
+
+    /**
+     * 注册类型编号
+     *
+     * @param codec /
+     */
+    void register(BinaryCodec codec);
+}
@@ -30,6 +30,16 @@ import org.springframework.context.annotation.Configuration;
 @ConfigurationProperties(prefix = "jwt")
 public class SecurityProperties {
 
+    /**
+     * 自包含用户名与权限的 JWT 令牌
+     */
+    public static final String JWT = "jwt";
+
+    /**
+     * 不透明令牌，只是在线会话的引用
+     */
+    public static final String OPAQUE = "opaque";
+
     /**
      * Request Headers ： Authorization
      */
@@ -55,6 +65,16 @@ public class SecurityProperties {
      */
     private String onlineKey;
 
+    /**
+     * 用户在线会话索引 key，后接用户名，值为该用户全部 token 的集合
+     */
+    private String onlineIndexKey = "online-index:user:";
+
+    /**
+     * 在线用户列表索引 key 前缀，后接 time（按登录时间排序）、expire（按过期时间排序）、fields（查询字段）及各字段的过滤索引，需带有 hash tag
+     */
+    private String onlineListKey = "online-index:{list}:";
+
     /**
      * 验证码 key
      */
@@ -70,6 +90,54 @@ public class SecurityProperties {
      */
     private Long renew;
 
+    /**
+     * 在线用户本地缓存最大数量，为 0 时关闭本地缓存
+     */
+    private Integer onlineCacheSize = 10000;
+
+    /**
+     * 在线用户本地缓存时间，此处单位/毫秒
+     */
+    private Long onlineCacheTtl = 60000L;
+
+    /**
+     * 无状态鉴权：本地校验 Token 签名，按 statelessRecheck 周期回查 Redis，
+     * 期间被踢出、退出的 Token 由各节点的吊销过滤器拦截
+     */
+    private boolean stateless = false;
+
+    /**
+     * 无状态鉴权回查 Redis 的周期，此处单位/毫秒，需小于 detect 才能正常续期
+     */
+    private Long statelessRecheck = 300000L;
+
+    /**
+     * 已验证 Token 本地缓存最大数量，与在线用户本地缓存相互独立，
+     * 条目写入 max(onlineCacheTtl, statelessRecheck) 后过期，会话被删除或用户信息失效时立即失效。
+     * 开启无状态鉴权时必须大于 0，否则每次请求都会回查 Redis
+     */
+    private Integer verifiedCacheSize = 10000;
+
+    /**
+     * 已吊销 Token 记录，按吊销时间排序
+     */
+    private String revokedKey = "token-revoked";
+
+    /**
+     * 吊销过滤器与 Redis 同步的周期，即漏收通知时吊销生效的最大延迟，此处单位/毫秒
+     */
+    private Long revokedSync = 30000L;
+
+    /**
+     * 每个回查周期内预计吊销的 Token 数量
+     */
+    private Integer revokedCapacity = 100000;
+
+    /**
+     * 签发的令牌类型：jwt 或 opaque，opaque 为随机字符串，用户信息与权限只保存在服务端
+     */
+    private String tokenType = JWT;
+
     public String getTokenStartWith() {
         return tokenStartWith + " ";
     }
@@ -0,0 +1,388 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 两级缓存：本节点的 Caffeine 缓存在前，Redis 缓存在后。
+ * 写入、失效时通知其它节点失效本地缓存，本节点之外的修改以通知或过期时间为准。
+ * <p>
+ * 通过 {@code @Cacheable(sync = true)} 读取时防止缓存击穿：同一个 key 在本节点只有一个线程重建，
+ * 并通过 Redis 租约保证同时只有一个节点重建。其它请求有过期前的旧值时直接返回旧值，
+ * 否则等待重建结果，等待超时后自行重建。
+ * 旧值只来自本地缓存的自然过期，写入、失效及清空时同时丢弃旧值，数据变更后不会返回变更前的值。
+ * sync 读取不经过 CacheErrorHandler，Redis 不可用时在此记录异常并直接查询数据
+ *
+ * @author adyfang
+ * @see TwoLevelCacheManager
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    /**
+     * 等待其它节点重建时查询 Redis 的间隔，单位毫秒
+     */
+    private static final long LEASE_POLL_INTERVAL = 50;
+
+    private final String name;
+    private final org.springframework.cache.Cache redisCache;
+    private final Cache<String, Object> localCache;
+    private final Cache<String, Object> staleCache;
+    private final LocalCacheProperties properties;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheMetrics.CacheStat stat;
+    private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>(16);
+
+    /**
+     * @param spec 本地缓存配置，为空时不使用本地缓存，只防止缓存击穿
+     */
+    TwoLevelCache(String name, org.springframework.cache.Cache redisCache, LocalCacheProperties.Spec spec,
+                  LocalCacheProperties properties, TwoLevelCacheManager cacheManager, CacheMetrics.CacheStat stat) {
+        super(true);
+        this.name = name;
+        this.redisCache = redisCache;
+        this.properties = properties;
+        this.cacheManager = cacheManager;
+        this.stat = stat;
+        if (spec == null) {
+            this.localCache = null;
+            this.staleCache = null;
+            return;
+        }
+        this.staleCache = spec.getStaleTtl() != null && spec.getStaleTtl() > 0 ? Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getStaleTtl(), TimeUnit.MILLISECONDS)
+                .build() : null;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getTtl(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                // 同步执行，失效后立即能取到旧值
+                .executor(Runnable::run)
+                .removalListener((String key, Object value, RemovalCause cause) -> {
+                    if (cause == RemovalCause.EXPIRED && staleCache != null && key != null && value != null) {
+                        staleCache.put(key, value);
+                    }
+                })
+                .build();
+        stat.setLocalCache(localCache);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    /**
+     * @return 本地缓存，未开启时为空
+     */
+    public Cache<String, Object> getLocalCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = localGet(localKey);
+        if (value != null) {
+            stat.getLocalHits().increment();
+            return value;
+        }
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null) {
+            stat.getMisses().increment();
+            return null;
+        }
+        stat.getRedisHits().increment();
+        value = toStoreValue(wrapper.get());
+        localPut(localKey, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = localGet(localKey);
+        if (value != null) {
+            stat.getLocalHits().increment();
+        } else {
+            ValueWrapper wrapper;
+            try {
+                wrapper = redisCache.get(key);
+            } catch (RuntimeException e) {
+                redisError(key, e);
+                return (T) fromStoreValue(call(key, valueLoader));
+            }
+            if (wrapper != null) {
+                stat.getRedisHits().increment();
+                value = toStoreValue(wrapper.get());
+                localPut(localKey, value);
+            } else {
+                stat.getMisses().increment();
+                value = load(key, localKey, valueLoader);
+            }
+        }
+        return (T) fromStoreValue(value);
+    }
+
+    /**
+     * 本节点同一个 key 只有一个线程重建，其它线程返回旧值或等待其结果
+     */
+    private Object load(Object key, String localKey, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(localKey, future);
+        if (existing != null) {
+            Object stale = staleGet(localKey);
+            if (stale != null) {
+                stat.getStaleHits().increment();
+                return stale;
+            }
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            Object value = loadWithLease(key, localKey, valueLoader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(localKey, future);
+        }
+    }
+
+    /**
+     * 持有 Redis 租约的节点重建，未拿到租约时返回旧值，或等待持有租约的节点写入 Redis
+     */
+    private Object loadWithLease(Object key, String localKey, Callable<?> valueLoader) {
+        String lease = cacheManager.acquireLease(name, localKey, properties.getLeaseTime());
+        try {
+            if (lease == null) {
+                Object stale = staleGet(localKey);
+                if (stale != null) {
+                    stat.getStaleHits().increment();
+                    return stale;
+                }
+                stat.getLeaseWaits().increment();
+                Object value = await(key, localKey);
+                if (value != null) {
+                    return value;
+                }
+                // 等待超时，持有租约的节点可能已失败，由本线程重建
+            } else {
+                // 拿到租约前其它节点可能刚好重建完成
+                ValueWrapper wrapper = redisGet(key);
+                if (wrapper != null) {
+                    Object value = toStoreValue(wrapper.get());
+                    localPut(localKey, value);
+                    return value;
+                }
+            }
+            Object value = call(key, valueLoader);
+            try {
+                redisCache.put(key, fromStoreValue(value));
+            } catch (RuntimeException e) {
+                redisError(key, e);
+            }
+            localPut(localKey, value);
+            return value;
+        } finally {
+            if (lease != null) {
+                cacheManager.releaseLease(name, localKey, lease);
+            }
+        }
+    }
+
+    private Object await(Object key, String localKey) {
+        long deadline = System.currentTimeMillis() + properties.getLeaseWait();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            ValueWrapper wrapper;
+            try {
+                wrapper = redisCache.get(key);
+            } catch (RuntimeException e) {
+                // Redis 不可用时不再等待，由本线程重建
+                redisError(key, e);
+                return null;
+            }
+            if (wrapper != null) {
+                Object value = toStoreValue(wrapper.get());
+                localPut(localKey, value);
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 调用重建方法，记录耗时及失败次数
+     */
+    private Object call(Object key, Callable<?> valueLoader) {
+        long start = System.nanoTime();
+        try {
+            return toStoreValue(valueLoader.call());
+        } catch (Exception e) {
+            stat.getLoadFailures().increment();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            stat.recordLoad(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 查询 Redis，异常时按未命中处理
+     */
+    private ValueWrapper redisGet(Object key) {
+        try {
+            return redisCache.get(key);
+        } catch (RuntimeException e) {
+            redisError(key, e);
+            return null;
+        }
+    }
+
+    private void redisError(Object key, RuntimeException e) {
+        stat.getErrors().increment();
+        log.error("Redis occur cache error：name -> [{}]；key -> [{}]", name, key, e);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        stat.getPuts().increment();
+        redisCache.put(key, value);
+        String localKey = localKey(key);
+        localPut(localKey, toStoreValue(value));
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        stat.getPuts().increment();
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        String localKey = localKey(key);
+        evictLocal(localKey);
+        if (existing == null) {
+            cacheManager.publishEvict(name, localKey);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        stat.getEvictions().increment();
+        redisCache.evict(key);
+        String localKey = localKey(key);
+        evictLocal(localKey);
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public void clear() {
+        stat.getClears().increment();
+        redisCache.clear();
+        clearLocal();
+        cacheManager.publishClear(name);
+    }
+
+    /**
+     * 失效本地缓存，数据已变更，不保留旧值
+     *
+     * @param localKey /
+     */
+    void evictLocal(String localKey) {
+        if (localCache != null) {
+            localCache.invalidate(localKey);
+        }
+        if (staleCache != null) {
+            staleCache.invalidate(localKey);
+        }
+    }
+
+    /**
+     * 失效匹配的本地缓存
+     *
+     * @param filter 按 key 过滤
+     */
+    void evictLocal(Predicate<String> filter) {
+        if (localCache != null) {
+            localCache.asMap().keySet().removeIf(filter);
+        }
+        if (staleCache != null) {
+            staleCache.asMap().keySet().removeIf(filter);
+        }
+    }
+
+    void clearLocal() {
+        if (localCache != null) {
+            localCache.invalidateAll();
+        }
+        if (staleCache != null) {
+            staleCache.invalidateAll();
+        }
+    }
+
+    private Object localGet(String localKey) {
+        return localCache == null ? null : localCache.getIfPresent(localKey);
+    }
+
+    private void localPut(String localKey, Object value) {
+        if (localCache != null) {
+            localCache.put(localKey, value);
+        }
+        if (staleCache != null) {
+            staleCache.invalidate(localKey);
+        }
+    }
+
+    private Object staleGet(String localKey) {
+        return staleCache == null ? null : staleCache.getIfPresent(localKey);
+    }
+
+    /**
+     * 与 Redis 中 key 去掉缓存名称前缀后的部分一致，便于按 Redis key 失效
+     */
+    static String localKey(Object key) {
+        return key instanceof String ? (String) key : String.valueOf(key);
+    }
+}
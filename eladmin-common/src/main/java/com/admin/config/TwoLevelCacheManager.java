@@ -0,0 +1,214 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.PatternMatchUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存管理，按缓存名称在 Redis 缓存前加一层本地缓存，未开启本地缓存的名称只防止缓存击穿。
+ * 本地缓存的失效通过 Redis 发布订阅通知所有节点，通知内容为：
+ * <pre>
+ * 发送节点 \n 操作 \n name::key ...
+ * </pre>
+ * 操作为 E（按 key 失效）、P（按通配符失效）或 C（清空，内容为缓存名称），
+ * 发送节点为空时所有节点都处理，例如 RedisUtils 直接删除缓存 key 时
+ *
+ * @author adyfang
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    /**
+     * 本地缓存失效通知频道
+     */
+    public static final String EVICT_CHANNEL = "cache-evict";
+
+    public static final String EVICT = "E";
+    public static final String EVICT_PATTERN = "P";
+    public static final String CLEAR = "C";
+
+    private static final String SEPARATOR = "\n";
+    private static final String KEY_SEPARATOR = "::";
+    private static final String LEASE_PREFIX = "cache-lease:";
+
+    /**
+     * 只释放自己持有的租约
+     */
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then" +
+                    "\nreturn redis.call('del', KEYS[1])" +
+                    "\nend" +
+                    "\nreturn 0", Long.class);
+
+    private final CacheManager redisCacheManager;
+    private final LocalCacheProperties properties;
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final CacheMetrics metrics;
+    private final String nodeId = IdUtil.simpleUUID();
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>(16);
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager, LocalCacheProperties properties,
+                                RedisTemplate<Object, Object> redisTemplate, CacheMetrics metrics) {
+        this.redisCacheManager = redisCacheManager;
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, key -> {
+            Cache redisCache = redisCacheManager.getCache(key);
+            if (redisCache == null) {
+                return null;
+            }
+            return new TwoLevelCache(key, redisCache, properties.getSpec(key), properties, this, metrics.cache(key));
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 构建失效通知
+     *
+     * @param nodeId 发送节点，为空时所有节点都处理
+     * @param op     操作
+     * @param keys   name::key 或缓存名称
+     * @return /
+     */
+    public static String evictMessage(String nodeId, String op, Collection<String> keys) {
+        StringJoiner joiner = new StringJoiner(SEPARATOR);
+        joiner.add(nodeId == null ? "" : nodeId).add(op);
+        keys.forEach(joiner::add);
+        return joiner.toString();
+    }
+
+    void publishEvict(String name, String key) {
+        publish(evictMessage(nodeId, EVICT, Collections.singletonList(name + KEY_SEPARATOR + key)));
+    }
+
+    void publishClear(String name) {
+        publish(evictMessage(nodeId, CLEAR, Collections.singletonList(name)));
+    }
+
+    /**
+     * 获取重建缓存的租约
+     *
+     * @param name   缓存名称
+     * @param key    /
+     * @param millis 租约时间
+     * @return 租约标识，其它节点持有租约时返回空
+     */
+    String acquireLease(String name, String key, long millis) {
+        String lease = nodeId + ":" + Thread.currentThread().getId();
+        try {
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(leaseKey(name, key), lease, millis, TimeUnit.MILLISECONDS);
+            return Boolean.FALSE.equals(acquired) ? null : lease;
+        } catch (Exception e) {
+            // Redis 不可用时只在本节点内防止击穿
+            log.error("acquire cache lease is error", e);
+            return lease;
+        }
+    }
+
+    void releaseLease(String name, String key, String lease) {
+        try {
+            redisTemplate.execute(RELEASE_LEASE_SCRIPT, Collections.singletonList(leaseKey(name, key)), lease);
+        } catch (Exception e) {
+            // 释放失败时租约到期后自动失效
+            log.error("release cache lease is error", e);
+        }
+    }
+
+    private static String leaseKey(String name, String key) {
+        return LEASE_PREFIX + name + KEY_SEPARATOR + key;
+    }
+
+    private void publish(String message) {
+        try {
+            redisTemplate.convertAndSend(EVICT_CHANNEL, message);
+        } catch (Exception e) {
+            // 通知失败时其它节点的本地缓存以过期时间为准
+            log.error("publish cache evict is error", e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (body == null) {
+            return;
+        }
+        String[] parts = body.toString().split(SEPARATOR);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        String op = parts[1];
+        for (int i = 2; i < parts.length; i++) {
+            String key = parts[i];
+            if (CLEAR.equals(op)) {
+                TwoLevelCache cache = twoLevelCache(key);
+                if (cache != null) {
+                    cache.clearLocal();
+                }
+            } else if (EVICT.equals(op)) {
+                int index = key.indexOf(KEY_SEPARATOR);
+                TwoLevelCache cache = index > 0 ? twoLevelCache(key.substring(0, index)) : null;
+                if (cache != null) {
+                    cache.evictLocal(key.substring(index + KEY_SEPARATOR.length()));
+                }
+            } else if (EVICT_PATTERN.equals(op)) {
+                evictPattern(key);
+            }
+        }
+        log.debug("失效本地缓存：{}", body);
+    }
+
+    /**
+     * 按 Redis 通配符失效，只支持 *，本地缓存条数有限，逐条匹配
+     */
+    private void evictPattern(String pattern) {
+        for (Cache cache : caches.values()) {
+            if (cache instanceof TwoLevelCache) {
+                String prefix = cache.getName() + KEY_SEPARATOR;
+                ((TwoLevelCache) cache).evictLocal(key -> PatternMatchUtils.simpleMatch(pattern, prefix + key));
+            }
+        }
+    }
+
+    private TwoLevelCache twoLevelCache(String name) {
+        Cache cache = caches.get(name);
+        return cache instanceof TwoLevelCache ? (TwoLevelCache) cache : null;
+    }
+}
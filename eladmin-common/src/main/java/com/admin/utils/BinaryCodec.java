@@ -0,0 +1,761 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.utils;
+
+import org.springframework.objenesis.SpringObjenesis;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑的二进制编码，用于 Redis 中的缓存对象：
+ * <ul>
+ *     <li>对象类型使用注册的编号，未注册的类型才写入类名</li>
+ *     <li>同一类型在一次编码中只写一次字段表（字段名哈希），之后的对象只写字段值</li>
+ *     <li>读取时按字段名哈希对应到当前类的字段，新增、删除字段不影响读取旧数据</li>
+ *     <li>以 {@link #MAGIC} 开头，可与 JSON 数据区分</li>
+ * </ul>
+ * 类型编号一经使用不可修改或复用，无法编码的类型抛出 {@link IllegalArgumentException}
+ *
+ * @author adyfang
+ */
+public class BinaryCodec {
+
+    /**
+     * 数据头，UTF-8 文本不会以该字节开头
+     */
+    public static final byte MAGIC = (byte) 0xB1;
+
+    public static final byte VERSION = 1;
+
+    private static final int HEADER_LENGTH = 2;
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_CACHED_BUFFER = 1024 * 1024;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int STRING = 5;
+    private static final int DOUBLE = 6;
+    private static final int FLOAT = 7;
+    private static final int SHORT = 8;
+    private static final int BYTE = 9;
+    private static final int CHAR = 10;
+    private static final int BIG_DECIMAL = 11;
+    private static final int BIG_INTEGER = 12;
+    private static final int DATE = 13;
+    private static final int TIMESTAMP = 14;
+    private static final int LOCAL_DATE_TIME = 15;
+    private static final int LOCAL_DATE = 16;
+    private static final int BYTES = 17;
+    private static final int ENUM = 18;
+    private static final int LIST = 19;
+    private static final int SET = 20;
+    private static final int MAP = 21;
+    private static final int OBJECT = 22;
+
+    private static final SpringObjenesis OBJENESIS = new SpringObjenesis();
+
+    private final Map<Integer, Class<?>> classesById = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Integer> idsByClass = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ClassInfo> classInfos = new ConcurrentHashMap<>();
+    private final ThreadLocal<Output> outputs = ThreadLocal.withInitial(Output::new);
+
+    /**
+     * 注册类型编号
+     *
+     * @param id   大于 0，一经使用不可修改或复用
+     * @param type 类型
+     * @return /
+     */
+    public BinaryCodec register(int id, Class<?> type) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("类型编号必须大于 0：" + type.getName());
+        }
+        Class<?> registered = classesById.putIfAbsent(id, type);
+        if (registered != null && registered != type) {
+            throw new IllegalArgumentException("类型编号 " + id + " 已被 " + registered.getName() + " 使用");
+        }
+        Integer registeredId = idsByClass.putIfAbsent(type, id);
+        if (registeredId != null && registeredId != id) {
+            throw new IllegalArgumentException(type.getName() + " 已注册为 " + registeredId);
+        }
+        return this;
+    }
+
+    /**
+     * @param bytes /
+     * @return 是否为该编码的数据
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC;
+    }
+
+    /**
+     * 编码
+     *
+     * @param value /
+     * @return /
+     */
+    public byte[] encode(Object value) {
+        Output out = outputs.get();
+        try {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            writeValue(out, value, 0);
+            return out.toByteArray();
+        } finally {
+            if (out.buffer.length > MAX_CACHED_BUFFER) {
+                outputs.remove();
+            } else {
+                out.reset();
+            }
+        }
+    }
+
+    /**
+     * 解码
+     *
+     * @param bytes /
+     * @return /
+     */
+    public Object decode(byte[] bytes) {
+        if (!isBinary(bytes)) {
+            throw new IllegalArgumentException("不是二进制编码的数据");
+        }
+        if (bytes[1] != VERSION) {
+            throw new IllegalArgumentException("不支持的编码版本：" + bytes[1]);
+        }
+        Input in = new Input(bytes, HEADER_LENGTH);
+        return readValue(in, 0);
+    }
+
+    private void writeValue(Output out, Object value, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("对象嵌套过深");
+        }
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeVarLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeVarLong((Integer) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeFixedLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeVarLong(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeVarLong((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            out.writeString(value.toString());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeVarLong(((Timestamp) value).getTime());
+            out.writeVarLong(((Timestamp) value).getNanos());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeVarLong(((Date) value).getTime());
+        } else if (value instanceof LocalDateTime) {
+            out.writeByte(LOCAL_DATE_TIME);
+            out.writeString(value.toString());
+        } else if (value instanceof LocalDate) {
+            out.writeByte(LOCAL_DATE);
+            out.writeString(value.toString());
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BYTES);
+            out.writeVarInt(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeClass(out, ((Enum<?>) value).getDeclaringClass());
+            out.writeString(((Enum<?>) value).name());
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            writeContainerClass(out, map.getClass(), HashMap.class, LinkedHashMap.class);
+            out.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey(), depth + 1);
+                writeValue(out, entry.getValue(), depth + 1);
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            if (value instanceof Set) {
+                out.writeByte(SET);
+                writeContainerClass(out, collection.getClass(), HashSet.class, LinkedHashSet.class);
+            } else {
+                out.writeByte(LIST);
+                writeContainerClass(out, collection.getClass(), ArrayList.class, ArrayList.class);
+            }
+            out.writeVarInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, element, depth + 1);
+            }
+        } else {
+            writeObject(out, value, depth);
+        }
+    }
+
+    private void writeObject(Output out, Object value, int depth) {
+        Class<?> type = value.getClass();
+        ClassInfo info = classInfo(type);
+        out.writeByte(OBJECT);
+        Integer index = out.schemas.get(type);
+        if (index == null) {
+            // 本次编码中首次出现的类型，写入类型与字段表
+            out.writeVarInt(0);
+            writeClass(out, type);
+            out.writeVarInt(info.fields.length);
+            for (int hash : info.hashes) {
+                out.writeFixedInt(hash);
+            }
+            out.schemas.put(type, out.schemas.size() + 1);
+        } else {
+            out.writeVarInt(index);
+        }
+        try {
+            for (Field field : info.fields) {
+                writeValue(out, field.get(value), depth + 1);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * 集合只在不是默认实现时写入类型，读取时按该类型创建
+     */
+    private void writeContainerClass(Output out, Class<?> type, Class<?> defaultType, Class<?> orderedType) {
+        if (type == defaultType || type == orderedType || !isInstantiable(type)) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            writeClass(out, type);
+        }
+    }
+
+    private void writeClass(Output out, Class<?> type) {
+        Integer id = idsByClass.get(type);
+        if (id != null) {
+            out.writeVarInt(id);
+        } else {
+            out.writeVarInt(0);
+            out.writeString(type.getName());
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue(Input in, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("对象嵌套过深");
+        }
+        int tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) in.readVarLong();
+            case LONG:
+                return in.readVarLong();
+            case STRING:
+                return in.readString();
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixedLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readVarLong());
+            case SHORT:
+                return (short) in.readVarLong();
+            case BYTE:
+                return (byte) in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case BIG_INTEGER:
+                return new BigInteger(in.readString());
+            case DATE:
+                return new Date(in.readVarLong());
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readVarLong());
+                timestamp.setNanos((int) in.readVarLong());
+                return timestamp;
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(in.readString());
+            case LOCAL_DATE:
+                return LocalDate.parse(in.readString());
+            case BYTES:
+                return in.readBytes(in.readVarInt());
+            case ENUM:
+                Class<?> enumType = readClass(in);
+                return Enum.valueOf((Class<Enum>) enumType, in.readString());
+            case MAP:
+                Map map = (Map) newContainer(in, LinkedHashMap.class);
+                int mapSize = in.readVarInt();
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(readValue(in, depth + 1), readValue(in, depth + 1));
+                }
+                return map;
+            case SET:
+            case LIST:
+                Collection collection = (Collection) newContainer(in, tag == SET ? LinkedHashSet.class : ArrayList.class);
+                int size = in.readVarInt();
+                for (int i = 0; i < size; i++) {
+                    collection.add(readValue(in, depth + 1));
+                }
+                return collection;
+            case OBJECT:
+                return readObject(in, depth);
+            default:
+                throw new IllegalArgumentException("无法识别的数据类型：" + tag);
+        }
+    }
+
+    private Object readObject(Input in, int depth) {
+        int index = in.readVarInt();
+        Schema schema;
+        if (index == 0) {
+            ClassInfo info = classInfo(readClass(in));
+            int[] hashes = new int[in.readVarInt()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = in.readFixedInt();
+            }
+            schema = new Schema(info, hashes);
+            in.schemas.add(schema);
+        } else {
+            schema = in.schemas.get(index - 1);
+        }
+        Object value = schema.info.newInstance();
+        for (Field field : schema.fields) {
+            Object fieldValue = readValue(in, depth + 1);
+            // 当前类已没有该字段时丢弃
+            if (field != null) {
+                assign(value, field, fieldValue);
+            }
+        }
+        return value;
+    }
+
+    private Object newContainer(Input in, Class<?> defaultType) {
+        Class<?> type = in.readByte() == 0 ? defaultType : readClass(in);
+        return classInfo(type).newInstance();
+    }
+
+    private Class<?> readClass(Input in) {
+        int id = in.readVarInt();
+        if (id != 0) {
+            Class<?> type = classesById.get(id);
+            if (type == null) {
+                throw new IllegalArgumentException("未注册的类型编号：" + id);
+            }
+            return type;
+        }
+        String name = in.readString();
+        try {
+            return Class.forName(name, false, BinaryCodec.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("找不到类型：" + name, e);
+        }
+    }
+
+    /**
+     * 写入字段，类型已变化且无法转换时保持默认值
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void assign(Object target, Field field, Object value) {
+        Class<?> type = field.getType();
+        Object converted = value;
+        if (value == null) {
+            if (type.isPrimitive()) {
+                return;
+            }
+        } else if (!wrap(type).isInstance(value)) {
+            converted = null;
+            if (value instanceof Number && Number.class.isAssignableFrom(wrap(type))) {
+                converted = convertNumber((Number) value, wrap(type));
+            } else if (value instanceof Date && Date.class.isAssignableFrom(type)) {
+                long time = ((Date) value).getTime();
+                converted = type == Timestamp.class ? new Timestamp(time)
+                        : type == java.sql.Date.class ? new java.sql.Date(time) : null;
+            } else if (value instanceof Collection && Collection.class.isAssignableFrom(type)) {
+                Collection collection = Set.class.isAssignableFrom(type) && type.isInterface() ? new LinkedHashSet()
+                        : type.isInterface() ? new ArrayList() : isInstantiable(type) ? (Collection) classInfo(type).newInstance() : null;
+                if (collection != null) {
+                    collection.addAll((Collection) value);
+                }
+                converted = collection;
+            } else if (value instanceof Map && Map.class.isAssignableFrom(type) && isInstantiable(type)) {
+                Map map = (Map) classInfo(type).newInstance();
+                map.putAll((Map) value);
+                converted = map;
+            }
+            if (converted == null) {
+                return;
+            }
+        }
+        try {
+            field.set(target, converted);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Object convertNumber(Number value, Class<?> type) {
+        if (type == Long.class) {
+            return value.longValue();
+        } else if (type == Integer.class) {
+            return value.intValue();
+        } else if (type == Double.class) {
+            return value.doubleValue();
+        } else if (type == Float.class) {
+            return value.floatValue();
+        } else if (type == Short.class) {
+            return value.shortValue();
+        } else if (type == Byte.class) {
+            return value.byteValue();
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(value.toString());
+        }
+        return null;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
+    private static boolean isInstantiable(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers())) {
+            return false;
+        }
+        try {
+            return Modifier.isPublic(type.getConstructor().getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private ClassInfo classInfo(Class<?> type) {
+        ClassInfo info = classInfos.get(type);
+        if (info == null) {
+            info = new ClassInfo(type);
+            classInfos.putIfAbsent(type, info);
+        }
+        return info;
+    }
+
+    /**
+     * FNV-1a
+     */
+    private static int hash(String name) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * 类型的可序列化字段，按字段名排序
+     */
+    private static final class ClassInfo {
+
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+        private final int[] hashes;
+        private final Map<Integer, Field> fieldsByHash;
+
+        ClassInfo(Class<?> type) {
+            String name = type.getName();
+            if (type.isArray() || type.isInterface() || type.isSynthetic() || type.isAnonymousClass()
+                    || name.startsWith("java.") || name.startsWith("javax.")) {
+                if (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) {
+                    throw new IllegalArgumentException("不支持的类型：" + name);
+                }
+            }
+            this.type = type;
+            Constructor<?> noArgs = null;
+            try {
+                noArgs = type.getDeclaredConstructor();
+                noArgs.setAccessible(true);
+            } catch (NoSuchMethodException ignored) {
+                // 没有无参构造方法时跳过构造方法创建对象
+            }
+            this.constructor = noArgs;
+            List<Field> list = new ArrayList<>();
+            if (!Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type)) {
+                for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                            field.setAccessible(true);
+                            list.add(field);
+                        }
+                    }
+                }
+            }
+            list.sort(Comparator.comparing(Field::getName));
+            this.fields = list.toArray(new Field[0]);
+            this.hashes = new int[fields.length];
+            this.fieldsByHash = new HashMap<>(fields.length * 2);
+            for (int i = 0; i < fields.length; i++) {
+                hashes[i] = hash(fields[i].getName());
+                if (fieldsByHash.put(hashes[i], fields[i]) != null) {
+                    throw new IllegalArgumentException("字段名重复或哈希冲突：" + name + "." + fields[i].getName());
+                }
+            }
+        }
+
+        Object newInstance() {
+            try {
+                return constructor != null ? constructor.newInstance() : OBJENESIS.newInstance(type);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("无法创建对象：" + type.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * 数据中的字段表与当前类字段的对应关系
+     */
+    private static final class Schema {
+
+        private final ClassInfo info;
+        private final Field[] fields;
+
+        Schema(ClassInfo info, int[] hashes) {
+            this.info = info;
+            this.fields = new Field[hashes.length];
+            for (int i = 0; i < hashes.length; i++) {
+                fields[i] = info.fieldsByHash.get(hashes[i]);
+            }
+        }
+    }
+
+    private static final class Output {
+
+        private byte[] buffer = new byte[256];
+        private int position;
+        private final Map<Class<?>, Integer> schemas = new IdentityHashMap<>();
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * ZigZag 变长编码，绝对值小的负数也只占少量字节
+         */
+        void writeVarLong(long value) {
+            ensure(10);
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        void writeFixedInt(int value) {
+            ensure(4);
+            buffer[position++] = (byte) (value >>> 24);
+            buffer[position++] = (byte) (value >>> 16);
+            buffer[position++] = (byte) (value >>> 8);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeFixedLong(long value) {
+            writeFixedInt((int) (value >>> 32));
+            writeFixedInt((int) value);
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii) {
+                writeVarInt(length);
+                ensure(length);
+                for (int i = 0; i < length; i++) {
+                    buffer[position++] = (byte) value.charAt(i);
+                }
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length);
+                writeBytes(bytes, 0, bytes.length);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void reset() {
+            position = 0;
+            schemas.clear();
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final byte[] buffer;
+        private int position;
+        private final List<Schema> schemas = new ArrayList<>();
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("数据不完整");
+            }
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int length) {
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("数据不完整");
+            }
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("变长整数格式错误");
+        }
+
+        long readVarLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("变长整数格式错误");
+        }
+
+        int readFixedInt() {
+            return (readByte() & 0xFF) << 24 | (readByte() & 0xFF) << 16 | (readByte() & 0xFF) << 8 | (readByte() & 0xFF);
+        }
+
+        long readFixedLong() {
+            return ((long) readFixedInt() << 32) | (readFixedInt() & 0xFFFFFFFFL);
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new IllegalArgumentException("数据不完整");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
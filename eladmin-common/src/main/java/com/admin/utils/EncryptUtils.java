@@ -33,27 +33,39 @@ public class EncryptUtils {
 
     private static final String STR_PARAM = "Passw0rd";
 
-    private static Cipher cipher;
-
     private static final IvParameterSpec IV = new IvParameterSpec(STR_PARAM.getBytes(StandardCharsets.UTF_8));
 
-    private static DESKeySpec getDesKeySpec(String source) throws Exception {
-        if (source == null || source.length() == 0) {
-            return null;
+    /**
+     * 密钥固定，只需生成一次
+     */
+    private static final SecretKey SECRET_KEY = generateSecretKey();
+
+    /**
+     * Cipher 不是线程安全的，每个线程复用自己的实例
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("DES/CBC/PKCS5Padding");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private static SecretKey generateSecretKey() {
+        try {
+            DESKeySpec desKeySpec = new DESKeySpec(STR_PARAM.getBytes(StandardCharsets.UTF_8));
+            return SecretKeyFactory.getInstance("DES").generateSecret(desKeySpec);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
         }
-        cipher = Cipher.getInstance("DES/CBC/PKCS5Padding");
-        String strKey = "Passw0rd";
-        return new DESKeySpec(strKey.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
      * 对称加密
      */
     public static String desEncrypt(String source) throws Exception {
-        DESKeySpec desKeySpec = getDesKeySpec(source);
-        SecretKeyFactory keyFactory = SecretKeyFactory.getInstance("DES");
-        SecretKey secretKey = keyFactory.generateSecret(desKeySpec);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, IV);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, SECRET_KEY, IV);
         return byte2hex(
                 cipher.doFinal(source.getBytes(StandardCharsets.UTF_8))).toUpperCase();
     }
@@ -63,10 +75,8 @@ public class EncryptUtils {
      */
     public static String desDecrypt(String source) throws Exception {
         byte[] src = hex2byte(source.getBytes(StandardCharsets.UTF_8));
-        DESKeySpec desKeySpec = getDesKeySpec(source);
-        SecretKeyFactory keyFactory = SecretKeyFactory.getInstance("DES");
-        SecretKey secretKey = keyFactory.generateSecret(desKeySpec);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, IV);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, SECRET_KEY, IV);
         byte[] retByte = cipher.doFinal(src);
         return new String(retByte);
     }
@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 2 的幂分桶的直方图，用于统计耗时、数据大小的分布，记录时无锁。
+ * 第 i 个桶记录 (2^(i-1), 2^i] 的值，最后一个桶记录超出范围的值，分位数按所在桶的上限估算
+ *
+ * @author adyfang
+ */
+public class Histogram {
+
+    private static final int BUCKETS = 32;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param value 小于 0 时按 0 记录
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        buckets[bucket(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile 0 到 1 之间
+     * @return 所在桶的上限，不超过最大值
+     */
+    public long percentile(double quantile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            cumulative += buckets[i].sum();
+            if (cumulative >= rank) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * @return 数量、平均值、最大值及常用分位数
+     */
+    public Map<String, Object> toMap() {
+        long total = count();
+        Map<String, Object> map = new LinkedHashMap<>(8);
+        map.put("count", total);
+        map.put("avg", total == 0 ? 0 : sum() / total);
+        map.put("p50", percentile(0.5));
+        map.put("p95", percentile(0.95));
+        map.put("p99", percentile(0.99));
+        map.put("max", max());
+        return map;
+    }
+
+    /**
+     * 按 Prometheus 文本格式输出累计分桶、总和与数量。
+     * 每次都输出全部固定分桶，分桶与数量取自同一份快照，数量为各桶之和，累计值不会超过数量
+     *
+     * @param out    输出
+     * @param name   指标名称
+     * @param labels 标签，如 cache="menu"，可为空
+     */
+    public void writeTo(StringBuilder out, String name, String labels) {
+        String prefix = labels == null || labels.isEmpty() ? "" : labels + ",";
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets[i].sum();
+        }
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            cumulative += snapshot[i];
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(upperBound(i))
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        long total = cumulative + snapshot[BUCKETS - 1];
+        out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(total).append('\n');
+        String suffix = prefix.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffix).append(' ').append(sum()).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(total).append('\n');
+    }
+
+    private static int bucket(long value) {
+        if (value <= 1) {
+            return 0;
+        }
+        return Math.min(64 - Long.numberOfLeadingZeros(value - 1), BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return 1L << bucket;
+    }
+}
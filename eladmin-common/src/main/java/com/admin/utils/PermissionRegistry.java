@@ -0,0 +1,68 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 权限标识注册表，将权限字符串映射为从 0 开始的连续整数，
+ * 用户的权限即可用位图保存，鉴权时只需按位判断
+ *
+ * @author adyfang
+ * @see PermissionSet
+ */
+public class PermissionRegistry {
+
+    /**
+     * 未注册的权限
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    /**
+     * 超级管理员权限，注册为 0
+     */
+    public static final int ADMIN = intern("admin");
+
+    private PermissionRegistry() {
+    }
+
+    /**
+     * 注册权限，已注册时返回原编号
+     *
+     * @param permission 权限标识
+     * @return 权限编号
+     */
+    public static int intern(String permission) {
+        return IDS.computeIfAbsent(permission, p -> SEQUENCE.getAndIncrement());
+    }
+
+    /**
+     * 查询权限编号，不会注册新的权限
+     *
+     * @param permission 权限标识
+     * @return 未注册时返回 {@link #UNKNOWN}
+     */
+    public static int idOf(String permission) {
+        Integer id = permission == null ? null : IDS.get(permission);
+        return id == null ? UNKNOWN : id;
+    }
+}
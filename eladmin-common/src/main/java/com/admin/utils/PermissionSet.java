@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.utils;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.util.Collection;
+
+/**
+ * 用户权限位图，创建后不可修改，判断权限时不产生新对象
+ *
+ * @author adyfang
+ * @see PermissionRegistry
+ */
+public final class PermissionSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final PermissionSet EMPTY = new PermissionSet(new long[0]);
+
+    private final long[] words;
+
+    private PermissionSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * 根据用户的权限创建位图，未注册的权限会先注册
+     *
+     * @param authorities 权限
+     * @return /
+     */
+    public static PermissionSet of(Collection<? extends GrantedAuthority> authorities) {
+        if (authorities == null || authorities.isEmpty()) {
+            return EMPTY;
+        }
+        int[] ids = new int[authorities.size()];
+        int max = -1;
+        int i = 0;
+        for (GrantedAuthority authority : authorities) {
+            ids[i] = PermissionRegistry.intern(authority.getAuthority());
+            max = Math.max(max, ids[i++]);
+        }
+        long[] words = new long[(max >> 6) + 1];
+        for (int id : ids) {
+            words[id >> 6] |= 1L << id;
+        }
+        return new PermissionSet(words);
+    }
+
+    /**
+     * @param id 权限编号
+     * @return 是否拥有该权限
+     */
+    public boolean contains(int id) {
+        int index = id >> 6;
+        return id >= 0 && index < words.length && (words[index] & (1L << id)) != 0;
+    }
+
+    /**
+     * 是否为超级管理员，或拥有任意一个权限
+     *
+     * @param permissions 权限标识
+     * @return /
+     */
+    public boolean check(String... permissions) {
+        if (contains(PermissionRegistry.ADMIN)) {
+            return true;
+        }
+        for (String permission : permissions) {
+            if (contains(PermissionRegistry.idOf(permission))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -15,20 +15,33 @@
  */
 package com.admin.utils;
 
+import com.admin.config.CacheMetrics;
+import com.admin.config.TwoLevelCacheManager;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
 import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisConnectionUtils;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
 /**
  * @author /
@@ -41,9 +54,34 @@ public class RedisUtils {
     private RedisTemplate<Object, Object> redisTemplate;
     @Value("${jwt.online-key}")
     private String onlineKey;
+    /**
+     * 配置了集群节点时按集群模式处理：扫描所有主节点，多键操作按槽位分组
+     */
+    @Value("${spring.redis.cluster.nodes:}")
+    private String clusterNodes;
+    /**
+     * 删除时使用 UNLINK，Redis 4.0 以下版本需关闭，改用 DEL
+     */
+    @Value("${spring.redis.unlink:true}")
+    private boolean unlink;
+    /**
+     * 批量读写时每批的命令数，每批通过一次 pipeline 发送
+     */
+    @Value("${spring.redis.batch-size:500}")
+    private int batchSize;
+    /**
+     * 按通配符删除时每次 SCAN 的数量，也是每次删除的批量
+     */
+    private static final int SCAN_COUNT = 1000;
+    /**
+     * 每条 UNLINK 命令的 key 数量
+     */
+    private static final int DELETE_BATCH = 200;
+    private final CacheMetrics cacheMetrics;
 
-    public RedisUtils(RedisTemplate<Object, Object> redisTemplate) {
+    public RedisUtils(RedisTemplate<Object, Object> redisTemplate, CacheMetrics cacheMetrics) {
         this.redisTemplate = redisTemplate;
+        this.cacheMetrics = cacheMetrics;
     }
 
     // =============================common============================
@@ -96,26 +134,39 @@ public class RedisUtils {
     }
 
     /**
-     * 查找匹配key
+     * 查找匹配key，集群模式下逐个扫描所有主节点
      *
      * @param pattern key
      * @return /
      */
     public List<String> scan(String pattern) {
-        ScanOptions options = ScanOptions.scanOptions().match(pattern).build();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(1000).build();
         RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
         RedisConnection rc = Objects.requireNonNull(factory).getConnection();
-        Cursor<byte[]> cursor = rc.scan(options);
-        List<String> result = new ArrayList<>();
-        while (cursor.hasNext()) {
-            result.add(new String(cursor.next()));
-        }
         try {
-            RedisConnectionUtils.releaseConnection(rc, factory);
-        } catch (Exception e) {
-            e.printStackTrace();
+            if (rc instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) rc;
+                List<RedisClusterNode> masters = new ArrayList<>();
+                clusterConnection.clusterGetNodes().forEach(node -> {
+                    if (node.isMaster()) {
+                        masters.add(node);
+                    }
+                });
+                // 集群连接不保证可以并发使用，逐个节点扫描
+                List<String> keys = new ArrayList<>();
+                for (RedisClusterNode node : masters) {
+                    keys.addAll(collect(clusterConnection.scan(node, options)));
+                }
+                return keys;
+            }
+            return collect(rc.scan(options));
+        } finally {
+            try {
+                RedisConnectionUtils.releaseConnection(rc, factory);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
-        return result;
     }
 
     /**
@@ -127,6 +178,10 @@ public class RedisUtils {
      * @return /
      */
     public List<String> findKeysForPage(String patternKey, int page, int size) {
+        if (isCluster()) {
+            // 集群模式下各节点的游标相互独立，只能汇总后分页
+            return PageUtil.toPage(page, size, scan(patternKey));
+        }
         ScanOptions options = ScanOptions.scanOptions().match(patternKey).build();
         RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
         RedisConnection rc = Objects.requireNonNull(factory).getConnection();
@@ -156,6 +211,22 @@ public class RedisUtils {
         return result;
     }
 
+    private static List<String> collect(Cursor<byte[]> cursor) {
+        List<String> result = new ArrayList<>();
+        try {
+            while (cursor.hasNext()) {
+                result.add(new String(cursor.next()));
+            }
+        } finally {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return result;
+    }
+
     /**
      * 判断key是否存在
      *
@@ -172,29 +243,36 @@ public class RedisUtils {
     }
 
     /**
-     * 删除缓存
+     * 删除缓存，传入多个时按通配符删除，不含通配符的直接删除，
+     * 含通配符的使用 SCAN 增量查找并分批 UNLINK，不阻塞 Redis
      *
      * @param key 可以传一个值 或多个
      */
     public void del(String... keys) {
-        if (keys != null && keys.length > 0) {
-            if (keys.length == 1) {
-                boolean result = redisTemplate.delete(keys[0]);
-                log.debug("--------------------------------------------");
-                log.debug(new StringBuilder("删除缓存：").append(keys[0]).append("，结果：").append(result).toString());
-                log.debug("--------------------------------------------");
+        if (keys == null || keys.length == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> exactKeys = new ArrayList<>(keys.length);
+        List<String> patterns = new ArrayList<>();
+        for (String key : keys) {
+            if (keys.length > 1 && isPattern(key)) {
+                patterns.add(key);
             } else {
-                Set<Object> keySet = new HashSet<>();
-                for (String key : keys) {
-                    keySet.addAll(redisTemplate.keys(key));
-                }
-                long count = redisTemplate.delete(keySet);
-                log.debug("--------------------------------------------");
-                log.debug("成功删除缓存：" + keySet.toString());
-                log.debug("缓存删除数量：" + count + "个");
-                log.debug("--------------------------------------------");
+                exactKeys.add(key);
             }
         }
+        long count = delete(exactKeys);
+        for (String pattern : patterns) {
+            count += deletePattern(pattern);
+        }
+        evictLocal(TwoLevelCacheManager.EVICT, exactKeys);
+        evictLocal(TwoLevelCacheManager.EVICT_PATTERN, patterns);
+        recordDelete(count, start);
+        log.debug("--------------------------------------------");
+        log.debug("删除缓存：" + Arrays.toString(keys));
+        log.debug("缓存删除数量：" + count + "个");
+        log.debug("--------------------------------------------");
     }
 
     // ============================String=============================
@@ -216,10 +294,7 @@ public class RedisUtils {
      * @return
      */
     public List<Object> multiGet(List<String> keys) {
-        List list = redisTemplate.opsForValue().multiGet(Sets.newHashSet(keys));
-        List resultList = Lists.newArrayList();
-        Optional.ofNullable(list).ifPresent(e-> list.forEach(ele-> Optional.ofNullable(ele).ifPresent(resultList::add)));
-        return resultList;
+        return getAll(keys).stream().filter(Objects::nonNull).collect(Collectors.toList());
     }
 
     /**
@@ -284,6 +359,24 @@ public class RedisUtils {
         }
     }
 
+    /**
+     * 不存在时放入并设置时间
+     *
+     * @param key      键
+     * @param value    值
+     * @param time     时间
+     * @param timeUnit 类型
+     * @return true成功 false 已存在或失败
+     */
+    public boolean setIfAbsent(String key, Object value, long time, TimeUnit timeUnit) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, value, time, timeUnit));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     // ================================Map=================================
 
     /**
@@ -694,20 +787,669 @@ public class RedisUtils {
         }
     }
 
+    // ============================zset=============================
+
+    /**
+     * 将数据放入zset缓存，已存在时更新分数
+     *
+     * @param key   键
+     * @param value 值
+     * @param score 分数
+     * @return true成功 false失败
+     */
+    public boolean zAdd(String key, Object value, double score) {
+        try {
+            redisTemplate.opsForZSet().add(key, value, score);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 按分数从高到低获取zset指定范围的值
+     *
+     * @param key   键
+     * @param start 开始
+     * @param end   结束 0 到 -1代表所有值
+     * @return
+     */
+    public Set<Object> zReverseRange(String key, long start, long end) {
+        try {
+            return redisTemplate.opsForZSet().reverseRange(key, start, end);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 获取zset中分数在指定区间的值
+     *
+     * @param key 键
+     * @param min 最小分数
+     * @param max 最大分数
+     * @return
+     */
+    public Set<Object> zRangeByScore(String key, double min, double max) {
+        try {
+            return redisTemplate.opsForZSet().rangeByScore(key, min, max);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 获取zset缓存的长度
+     *
+     * @param key 键
+     * @return
+     */
+    public long zSize(String key) {
+        try {
+            return redisTemplate.opsForZSet().zCard(key);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 移除zset中的值
+     *
+     * @param key    键
+     * @param values 值 可以是多个
+     * @return 移除的个数
+     */
+    public long zRemove(String key, Object... values) {
+        try {
+            return redisTemplate.opsForZSet().remove(key, values);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 移除zset中分数在指定区间的值
+     *
+     * @param key 键
+     * @param min 最小分数
+     * @param max 最大分数
+     * @return 移除的个数
+     */
+    public long zRemoveRangeByScore(String key, double min, double max) {
+        try {
+            return redisTemplate.opsForZSet().removeRangeByScore(key, min, max);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    // ============================bitmap/hyperloglog=============================
+
+    /**
+     * 统计位图中值为 1 的位数
+     *
+     * @param key 键
+     * @return
+     */
+    public long bitCount(String key) {
+        try {
+            Long count = redisTemplate.execute((RedisCallback<Long>) connection -> connection.bitCount(rawKey(key)));
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * 多个位图按位或后统计值为 1 的位数，集群模式下各个键需位于同一槽位
+     *
+     * @param destKey 存放中间结果的键，统计后删除
+     * @param keys    键
+     * @return
+     */
+    public long bitCountOr(String destKey, String... keys) {
+        try {
+            byte[] dest = rawKey(destKey);
+            byte[][] sources = Arrays.stream(keys).map(this::rawKey).toArray(byte[][]::new);
+            Long count = redisTemplate.execute((RedisCallback<Long>) connection -> {
+                connection.bitOp(RedisStringCommands.BitOperation.OR, dest, sources);
+                Long result = connection.bitCount(dest);
+                connection.del(dest);
+                return result;
+            });
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * HyperLogLog 估算不重复元素的数量，多个键时估算并集
+     *
+     * @param keys 键
+     * @return
+     */
+    public long pfCount(String... keys) {
+        try {
+            return redisTemplate.opsForHyperLogLog().size((Object[]) keys);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    // ============================pipeline=============================
+
+    /**
+     * 使用管道批量执行命令，键与值需自行序列化
+     *
+     * @param action 命令
+     * @return 各命令的结果
+     * @throws RuntimeException Redis 访问失败时抛出，不返回空结果
+     */
+    public List<Object> executePipelined(RedisCallback<?> action) {
+        try {
+            return redisTemplate.executePipelined(action);
+        } catch (RuntimeException e) {
+            log.error("execute pipelined is error", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量执行不需要结果的命令，单机模式下通过 pipeline 一次发送；
+     * 集群模式下逐条执行，每条命令按 key 路由到所在节点，失败时不会静默丢弃
+     *
+     * @param action 命令
+     * @throws RuntimeException Redis 访问失败时抛出
+     */
+    public void executeBatch(RedisCallback<?> action) {
+        if (!isCluster()) {
+            executePipelined(action);
+            return;
+        }
+        try {
+            redisTemplate.execute(action);
+        } catch (RuntimeException e) {
+            log.error("execute batch is error", e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按 key 的序列化方式序列化
+     *
+     * @param key 键
+     * @return
+     */
+    public byte[] rawKey(String key) {
+        return redisTemplate.getStringSerializer().serialize(key);
+    }
+
+    // ============================bulk=============================
+
+    /**
+     * 批量获取，结果与 keys 顺序一致，不存在的 key 对应 null
+     *
+     * @param keys 键
+     * @return 值
+     * @throws RuntimeException Redis 访问失败时抛出，以便与未命中区分
+     */
+    public List<Object> getAll(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<Object> values = new ArrayList<>(keys.size());
+            if (isCluster()) {
+                // 集群连接不支持 pipeline，每批一条 MGET，跨槽位时按节点拆分
+                for (List<String> chunk : Lists.partition(keys, batchSize)) {
+                    List<Object> result = redisTemplate.opsForValue().multiGet((Collection) chunk);
+                    values.addAll(result == null ? Collections.nCopies(chunk.size(), null) : result);
+                }
+                return values;
+            }
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (List<String> chunk : Lists.partition(keys, batchSize)) {
+                    connection.stringCommands().mGet(rawKeys(chunk));
+                }
+                return null;
+            });
+            for (Object result : results) {
+                values.addAll((List<Object>) result);
+            }
+            return values;
+        } catch (RuntimeException e) {
+            log.error("get all is error, keys: {}", keys.size(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量放入并设置相同的过期时间
+     *
+     * @param values 键值
+     * @param time   时间(秒)，小于等于 0 时不过期
+     * @return true成功 false 失败
+     */
+    public boolean setAll(Map<String, Object> values, long time) {
+        return setAll(values, key -> time);
+    }
+
+    /**
+     * 批量放入，每个 key 单独设置过期时间
+     *
+     * @param values 键值
+     * @param times  每个 key 的过期时间(秒)，未指定或小于等于 0 时不过期
+     * @return true成功 false 失败
+     */
+    public boolean setAll(Map<String, Object> values, Map<String, Long> times) {
+        return setAll(values, key -> times.getOrDefault(key, 0L));
+    }
+
+    private boolean setAll(Map<String, Object> values, ToLongFunction<String> time) {
+        if (values == null || values.isEmpty()) {
+            return true;
+        }
+        try {
+            pipeline(values.entrySet(), (connection, entry) -> {
+                long seconds = time.applyAsLong(entry.getKey());
+                return connection.stringCommands().set(rawKey(entry.getKey()), rawValue(entry.getValue()),
+                        seconds > 0 ? Expiration.seconds(seconds) : Expiration.persistent(),
+                        RedisStringCommands.SetOption.upsert());
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("set all is error, keys: {}", values.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量获取多个 Hash 的全部键值，结果与 keys 顺序一致，不存在的 key 对应空 Map
+     *
+     * @param keys 键
+     * @return 对应的多个键值
+     * @throws RuntimeException Redis 访问失败时抛出，以便与不存在的 key 区分
+     */
+    public List<Map<Object, Object>> hmgetAll(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            List<Object> results = pipeline(keys, (connection, key) -> connection.hashCommands().hGetAll(rawKey(key)));
+            List<Map<Object, Object>> maps = new ArrayList<>(results.size());
+            for (Object result : results) {
+                Map<byte[], byte[]> raw = (Map<byte[], byte[]>) result;
+                Map<Object, Object> map = new LinkedHashMap<>(raw == null ? 0 : raw.size());
+                if (raw != null) {
+                    raw.forEach((item, value) -> map.put(redisTemplate.getHashKeySerializer().deserialize(item),
+                            redisTemplate.getHashValueSerializer().deserialize(value)));
+                }
+                maps.add(map);
+            }
+            return maps;
+        } catch (RuntimeException e) {
+            log.error("hmget all is error, keys: {}", keys.size(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量写入多个 Hash 并设置过期时间
+     *
+     * @param values 键与对应的多个键值
+     * @param time   时间(秒)，小于等于 0 时不设置
+     * @return true成功 false 失败
+     */
+    public boolean hmsetAll(Map<String, Map<String, Object>> values, long time) {
+        if (values == null || values.isEmpty()) {
+            return true;
+        }
+        try {
+            pipeline(values.entrySet(), (connection, entry) -> {
+                byte[] key = rawKey(entry.getKey());
+                Map<byte[], byte[]> hash = new LinkedHashMap<>(entry.getValue().size());
+                entry.getValue().forEach((item, value) -> hash.put(rawHashKey(item), rawHashValue(value)));
+                if (!hash.isEmpty()) {
+                    connection.hashCommands().hMSet(key, hash);
+                }
+                return time > 0 ? connection.keyCommands().expire(key, time) : null;
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("hmset all is error, keys: {}", values.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量指定缓存失效时间
+     *
+     * @param keys     键
+     * @param time     时间
+     * @param timeUnit 单位
+     * @return true成功 false 失败
+     */
+    public boolean expireAll(Collection<String> keys, long time, TimeUnit timeUnit) {
+        if (keys == null || keys.isEmpty() || time <= 0) {
+            return true;
+        }
+        try {
+            long millis = timeUnit.toMillis(time);
+            pipeline(keys, (connection, key) -> connection.keyCommands().pExpire(rawKey(key), millis));
+            return true;
+        } catch (Exception e) {
+            log.error("expire all is error, keys: {}", keys.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量判断 key 是否存在，结果与 keys 顺序一致
+     *
+     * @param keys 键
+     * @return true 存在 false不存在
+     * @throws RuntimeException Redis 访问失败时抛出，以便与不存在区分
+     */
+    public List<Boolean> hasKeys(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return pipeline(keys, (connection, key) -> connection.keyCommands().exists(rawKey(key))).stream()
+                    .map(Boolean.TRUE::equals).collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            log.error("has keys is error, keys: {}", keys.size(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量估算多个 HyperLogLog 各自不重复元素的数量，结果与 keys 顺序一致
+     *
+     * @param keys 键
+     * @return 不存在的 key 对应 0
+     * @throws RuntimeException Redis 访问失败时抛出
+     */
+    public List<Long> pfCountAll(List<String> keys) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return pipeline(keys, (connection, key) -> connection.hyperLogLogCommands().pfCount(rawKey(key))).stream()
+                    .map(result -> result == null ? 0L : ((Number) result).longValue()).collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            log.error("pf count all is error, keys: {}", keys.size(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按 batchSize 分批执行，单机模式下每批通过一次 pipeline 发送；集群连接不支持 pipeline，逐条执行。
+     * 每项只执行一条命令时，结果与 items 顺序一致，结果未经反序列化
+     *
+     * @param items   数据
+     * @param command 每项执行的命令
+     * @return 各命令的原始结果
+     */
+    private <T> List<Object> pipeline(Collection<T> items, BiFunction<RedisConnection, T, Object> command) {
+        List<T> list = items instanceof List ? (List<T>) items : new ArrayList<>(items);
+        List<Object> results = new ArrayList<>(list.size());
+        for (List<T> chunk : Lists.partition(list, batchSize)) {
+            if (isCluster()) {
+                for (T item : chunk) {
+                    results.add(redisTemplate.execute((RedisCallback<Object>) connection -> command.apply(connection, item)));
+                }
+            } else {
+                results.addAll(redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    chunk.forEach(item -> command.apply(connection, item));
+                    return null;
+                }, null));
+            }
+        }
+        return results;
+    }
+
+    private byte[][] rawKeys(List<String> keys) {
+        byte[][] rawKeys = new byte[keys.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = rawKey(keys.get(i));
+        }
+        return rawKeys;
+    }
+
+    private byte[] rawValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+    }
+
+    private byte[] rawHashKey(Object item) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashKeySerializer()).serialize(item);
+    }
+
+    private byte[] rawHashValue(Object value) {
+        return ((RedisSerializer<Object>) redisTemplate.getHashValueSerializer()).serialize(value);
+    }
+
+    // ============================script=============================
+
+    /**
+     * 执行 Lua 脚本，优先使用 EVALSHA 调用，脚本不存在时自动加载
+     *
+     * @param script 脚本
+     * @param keys   键
+     * @param args   参数，按字符串传递
+     * @return 脚本返回值，字符串等数据按 value 的序列化方式反序列化
+     */
+    public <T> T execute(RedisScript<T> script, List<Object> keys, Object... args) {
+        Object[] stringArgs = Arrays.stream(args).map(String::valueOf).toArray();
+        return redisTemplate.execute(script, redisTemplate.getStringSerializer(),
+                (RedisSerializer<T>) redisTemplate.getValueSerializer(), keys, stringArgs);
+    }
+
+    /**
+     * 执行 Lua 脚本，返回的数据按字符串反序列化，用于由脚本读写的纯字符串数据
+     *
+     * @param script 脚本
+     * @param keys   键
+     * @param args   参数，按字符串传递
+     * @return 脚本返回值
+     */
+    public <T> T executeString(RedisScript<T> script, List<Object> keys, Object... args) {
+        Object[] stringArgs = Arrays.stream(args).map(String::valueOf).toArray();
+        return redisTemplate.execute(script, redisTemplate.getStringSerializer(),
+                (RedisSerializer<T>) redisTemplate.getStringSerializer(), keys, stringArgs);
+    }
+
+    // ============================pub/sub=============================
+
+    /**
+     * 发布消息
+     *
+     * @param channel 频道
+     * @param message 消息
+     * @return true成功 false失败
+     */
+    public boolean publish(String channel, Object message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     /**
      * @param prefix 前缀
      * @param ids    id
      */
     public void delByKeys(String prefix, Set<Long> ids) {
-        Set<Object> keys = new HashSet<>();
+        long start = System.nanoTime();
+        Set<String> keys = new HashSet<>();
+        List<String> localKeys = new ArrayList<>(ids.size());
         for (Long id : ids) {
-            keys.addAll(redisTemplate.keys(new StringBuffer(prefix).append(id).toString()));
+            String key = new StringBuffer(prefix).append(id).toString();
+            keys.add(key);
+            localKeys.add(key);
         }
-        long count = redisTemplate.delete(keys);
+        long count = delete(keys);
+        evictLocal(TwoLevelCacheManager.EVICT, localKeys);
+        recordDelete(count, start);
         // 此处提示可自行删除
         log.debug("--------------------------------------------");
         log.debug("成功删除缓存：" + keys.toString());
         log.debug("缓存删除数量：" + count + "个");
         log.debug("--------------------------------------------");
     }
+
+    /**
+     * 通知各节点失效两级缓存中的本地缓存，只处理 name::key 格式的缓存 key
+     *
+     * @param op   操作
+     * @param keys 键或通配符
+     */
+    private void evictLocal(String op, Collection<String> keys) {
+        List<String> cacheKeys = keys.stream().filter(key -> key.indexOf("::") > 0).collect(Collectors.toList());
+        if (!cacheKeys.isEmpty()) {
+            publish(TwoLevelCacheManager.EVICT_CHANNEL, TwoLevelCacheManager.evictMessage(null, op, cacheKeys));
+        }
+    }
+
+    // ============================cluster=============================
+
+    /**
+     * 是否为集群模式
+     *
+     * @return /
+     */
+    public boolean isCluster() {
+        return StringUtils.isNotBlank(clusterNodes);
+    }
+
+    /**
+     * 按 key 删除
+     *
+     * @param keys 键
+     * @return 删除的数量
+     */
+    private long delete(Collection<String> keys) {
+        List<byte[]> rawKeys = new ArrayList<>(keys.size());
+        keys.forEach(key -> rawKeys.add(rawKey(key)));
+        return unlink(rawKeys);
+    }
+
+    /**
+     * 按通配符删除，边扫描边删除，不在内存中汇总全部 key，集群模式下逐个扫描所有主节点
+     *
+     * @param pattern 通配符
+     * @return 删除的数量
+     */
+    private long deletePattern(String pattern) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_COUNT).build();
+        RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
+        RedisConnection rc = Objects.requireNonNull(factory).getConnection();
+        try {
+            if (rc instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) rc;
+                List<RedisClusterNode> masters = new ArrayList<>();
+                clusterConnection.clusterGetNodes().forEach(node -> {
+                    if (node.isMaster()) {
+                        masters.add(node);
+                    }
+                });
+                long count = 0;
+                for (RedisClusterNode node : masters) {
+                    count += unlink(clusterConnection.scan(node, options));
+                }
+                return count;
+            }
+            return unlink(rc.scan(options));
+        } finally {
+            try {
+                RedisConnectionUtils.releaseConnection(rc, factory);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private long unlink(Cursor<byte[]> cursor) {
+        long count = 0;
+        List<byte[]> batch = new ArrayList<>(SCAN_COUNT);
+        try {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_COUNT) {
+                    count += unlink(batch);
+                    batch = new ArrayList<>(SCAN_COUNT);
+                }
+            }
+        } finally {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return count + unlink(batch);
+    }
+
+    /**
+     * 分批 UNLINK，Redis 在后台线程释放内存。单机模式下多批通过 pipeline 一次发送，
+     * 集群模式下按槽位分组，每组一条命令
+     *
+     * @param keys 键
+     * @return 删除的数量
+     */
+    private long unlink(List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        if (isCluster()) {
+            Map<Integer, List<byte[]>> slots = keys.stream()
+                    .collect(Collectors.groupingBy(ClusterSlotHashUtil::calculateSlot));
+            long count = 0;
+            for (List<byte[]> group : slots.values()) {
+                for (List<byte[]> chunk : Lists.partition(group, DELETE_BATCH)) {
+                    Long result = redisTemplate.execute((RedisCallback<Long>) connection ->
+                            unlink(connection, chunk.toArray(new byte[0][])));
+                    count += result == null ? 0 : result;
+                }
+            }
+            return count;
+        }
+        if (keys.size() <= DELETE_BATCH) {
+            Long result = redisTemplate.execute((RedisCallback<Long>) connection ->
+                    unlink(connection, keys.toArray(new byte[0][])));
+            return result == null ? 0 : result;
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (List<byte[]> chunk : Lists.partition(keys, DELETE_BATCH)) {
+                unlink(connection, chunk.toArray(new byte[0][]));
+            }
+            return null;
+        });
+        return results.stream().filter(Objects::nonNull).mapToLong(result -> ((Number) result).longValue()).sum();
+    }
+
+    private Long unlink(RedisConnection connection, byte[][] keys) {
+        return unlink ? connection.keyCommands().unlink(keys) : connection.keyCommands().del(keys);
+    }
+
+    private static boolean isPattern(String key) {
+        return key.indexOf('*') >= 0 || key.indexOf('?') >= 0 || key.indexOf('[') >= 0;
+    }
+
+    private void recordDelete(long count, long start) {
+        cacheMetrics.getDelete().record(count, System.nanoTime() - start);
+    }
 }
@@ -8,6 +8,8 @@ import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author https://www.cnblogs.com/nihaorz/p/10690643.html
@@ -18,6 +20,24 @@ public class RsaUtils {
 
     private static final String SRC = "123456";
 
+    /**
+     * 解析后的密钥，key 为密钥文本，密钥来自配置文件，数量有限
+     */
+    private static final Map<String, PublicKey> PUBLIC_KEYS = new ConcurrentHashMap<>();
+
+    private static final Map<String, PrivateKey> PRIVATE_KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * Cipher 不是线程安全的，每个线程复用自己的实例
+     */
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("RSA");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     public static void main(String[] args) throws Exception {
         System.out.println("\n");
         RsaKeyPair keyPair = generateKeyPair();
@@ -77,11 +97,8 @@ public class RsaUtils {
      * @throws Exception /
      */
     public static String decryptByPublicKey(String publicKeyText, String text) throws Exception {
-        X509EncodedKeySpec x509EncodedKeySpec = new X509EncodedKeySpec(Base64.decodeBase64(publicKeyText));
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        PublicKey publicKey = keyFactory.generatePublic(x509EncodedKeySpec);
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.DECRYPT_MODE, publicKey);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, publicKey(publicKeyText));
         byte[] result = cipher.doFinal(Base64.decodeBase64(text));
         return new String(result);
     }
@@ -95,11 +112,8 @@ public class RsaUtils {
      * @throws Exception /
      */
     public static String encryptByPrivateKey(String privateKeyText, String text) throws Exception {
-        PKCS8EncodedKeySpec pkcs8EncodedKeySpec = new PKCS8EncodedKeySpec(Base64.decodeBase64(privateKeyText));
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        PrivateKey privateKey = keyFactory.generatePrivate(pkcs8EncodedKeySpec);
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.ENCRYPT_MODE, privateKey);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, privateKey(privateKeyText));
         byte[] result = cipher.doFinal(text.getBytes());
         return Base64.encodeBase64String(result);
     }
@@ -113,11 +127,8 @@ public class RsaUtils {
      * @throws Exception /
      */
     public static String decryptByPrivateKey(String privateKeyText, String text) throws Exception {
-        PKCS8EncodedKeySpec pkcs8EncodedKeySpec5 = new PKCS8EncodedKeySpec(Base64.decodeBase64(privateKeyText));
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        PrivateKey privateKey = keyFactory.generatePrivate(pkcs8EncodedKeySpec5);
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.DECRYPT_MODE, privateKey);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, privateKey(privateKeyText));
         byte[] result = cipher.doFinal(Base64.decodeBase64(text));
         return new String(result);
     }
@@ -130,15 +141,32 @@ public class RsaUtils {
      * @return /
      */
     public static String encryptByPublicKey(String publicKeyText, String text) throws Exception {
-        X509EncodedKeySpec x509EncodedKeySpec2 = new X509EncodedKeySpec(Base64.decodeBase64(publicKeyText));
-        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-        PublicKey publicKey = keyFactory.generatePublic(x509EncodedKeySpec2);
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+        Cipher cipher = CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey(publicKeyText));
         byte[] result = cipher.doFinal(text.getBytes());
         return Base64.encodeBase64String(result);
     }
 
+    private static PublicKey publicKey(String publicKeyText) throws Exception {
+        PublicKey publicKey = PUBLIC_KEYS.get(publicKeyText);
+        if (publicKey == null) {
+            X509EncodedKeySpec x509EncodedKeySpec = new X509EncodedKeySpec(Base64.decodeBase64(publicKeyText));
+            publicKey = KeyFactory.getInstance("RSA").generatePublic(x509EncodedKeySpec);
+            PUBLIC_KEYS.put(publicKeyText, publicKey);
+        }
+        return publicKey;
+    }
+
+    private static PrivateKey privateKey(String privateKeyText) throws Exception {
+        PrivateKey privateKey = PRIVATE_KEYS.get(privateKeyText);
+        if (privateKey == null) {
+            PKCS8EncodedKeySpec pkcs8EncodedKeySpec = new PKCS8EncodedKeySpec(Base64.decodeBase64(privateKeyText));
+            privateKey = KeyFactory.getInstance("RSA").generatePrivate(pkcs8EncodedKeySpec);
+            PRIVATE_KEYS.put(privateKeyText, privateKey);
+        }
+        return privateKey;
+    }
+
     /**
      * 构建RSA密钥对
      *
@@ -18,6 +18,7 @@ package com.admin.utils;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.admin.base.BaseUserDetails;
 import com.admin.exception.BadRequestException;
 import com.admin.utils.enums.DataScopeEnum;
 import lombok.extern.slf4j.Slf4j;
@@ -77,6 +78,9 @@ public class SecurityUtils {
      */
     public static Long getCurrentUserId() {
         UserDetails userDetails = getCurrentUser();
+        if (userDetails instanceof BaseUserDetails) {
+            return ((BaseUserDetails) userDetails).getUserId();
+        }
         return new JSONObject(new JSONObject(userDetails).get("user")).get("id", Long.class);
     }
 
@@ -87,6 +91,9 @@ public class SecurityUtils {
      */
     public static List<Long> getCurrentUserDataScope() {
         UserDetails userDetails = getCurrentUser();
+        if (userDetails instanceof BaseUserDetails) {
+            return ((BaseUserDetails) userDetails).getDataScopes();
+        }
         JSONArray array = JSONUtil.parseArray(new JSONObject(userDetails).get("dataScopes"));
         return JSONUtil.toList(array, Long.class);
     }
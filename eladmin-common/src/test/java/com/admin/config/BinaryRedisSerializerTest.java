@@ -0,0 +1,104 @@
+package com.admin.config;
+
+import com.admin.utils.BinaryCodec;
+import com.alibaba.fastjson.parser.ParserConfig;
+import lombok.Data;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BinaryRedisSerializerTest {
+
+    private final BinaryCodec codec = new BinaryCodec().register(1, Item.class);
+    private final FastJsonRedisSerializer<Object> json = new FastJsonRedisSerializer<>(Object.class);
+
+    @BeforeClass
+    public static void enableAutoType() {
+        // 与 RedisConfig 一致，JSON 数据带类名
+        ParserConfig.getGlobalInstance().setAutoTypeSupport(true);
+    }
+
+    /**
+     * 对象按二进制写入，字符串、数字与布尔值仍按 JSON 写入
+     */
+    @Test
+    public void testWriteBinary() {
+        BinaryRedisSerializer serializer = new BinaryRedisSerializer(codec, json, true);
+        Item item = item();
+        byte[] bytes = serializer.serialize(item);
+        assertTrue(BinaryCodec.isBinary(bytes));
+        assertEquals(item, serializer.deserialize(bytes));
+        List<Item> items = Arrays.asList(item, item());
+        assertEquals(items, serializer.deserialize(serializer.serialize(items)));
+        for (Object value : new Object[]{"text", 1, true}) {
+            bytes = serializer.serialize(value);
+            assertFalse(BinaryCodec.isBinary(bytes));
+            assertArrayEquals(json.serialize(value), bytes);
+            assertEquals(value, serializer.deserialize(bytes));
+        }
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(new byte[0]));
+        assertNull(serializer.deserialize(null));
+    }
+
+    /**
+     * 切换前按 JSON 写入的值仍能读取
+     */
+    @Test
+    public void testReadJson() {
+        BinaryRedisSerializer serializer = new BinaryRedisSerializer(codec, json, true);
+        Item item = item();
+        assertEquals(item, serializer.deserialize(json.serialize(item)));
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", "value");
+        assertEquals(map, serializer.deserialize(json.serialize(map)));
+    }
+
+    /**
+     * 未开启二进制写入时按 JSON 写入，但能读取其它节点写入的二进制数据
+     */
+    @Test
+    public void testWriteJson() {
+        BinaryRedisSerializer serializer = new BinaryRedisSerializer(codec, json, false);
+        Item item = item();
+        byte[] bytes = serializer.serialize(item);
+        assertFalse(BinaryCodec.isBinary(bytes));
+        assertEquals(item, serializer.deserialize(bytes));
+        assertEquals(item, serializer.deserialize(codec.encode(item)));
+    }
+
+    /**
+     * 无法二进制编码的值按 JSON 写入
+     */
+    @Test
+    public void testFallbackToJson() {
+        BinaryRedisSerializer serializer = new BinaryRedisSerializer(codec, json, true);
+        Map<String, Object> map = new HashMap<>();
+        map.put("count", new AtomicLong(3));
+        byte[] bytes = serializer.serialize(map);
+        assertFalse(BinaryCodec.isBinary(bytes));
+        assertTrue(serializer.deserialize(bytes) instanceof Map);
+    }
+
+    private static Item item() {
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("item");
+        item.setTags(Arrays.asList("a", "b"));
+        return item;
+    }
+
+    @Data
+    public static class Item {
+        private Long id;
+        private String name;
+        private List<String> tags;
+    }
+}
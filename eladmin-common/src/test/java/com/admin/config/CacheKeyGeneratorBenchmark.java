@@ -0,0 +1,142 @@
+package com.admin.config;
+
+import com.alibaba.fastjson.JSON;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比原 JSON + SHA-256 key 生成策略与 CacheKeyGenerator 的耗时及内存分配，
+ * 分别对应 AdminDeptServiceImpl.queryAll() 与 AdminDataServiceImpl.getDeptChildren(List) 这类调用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyGeneratorBenchmark {
+
+    private final DeptService target = new DeptService();
+    private final KeyGenerator legacy = (target, method, params) -> {
+        Map<String, Object> container = new HashMap<>(3);
+        Class<?> targetClassClass = target.getClass();
+        container.put("class", targetClassClass.toGenericString());
+        container.put("methodName", method.getName());
+        container.put("package", targetClassClass.getPackage());
+        for (int i = 0; i < params.length; i++) {
+            container.put(String.valueOf(i), params[i]);
+        }
+        return DigestUtils.sha256Hex(JSON.toJSONString(container));
+    };
+    private final KeyGenerator structural = new CacheKeyGenerator();
+    private Method queryAll;
+    private Method getDeptChildren;
+    private List<Dept> depts;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        queryAll = DeptService.class.getMethod("queryAll");
+        getDeptChildren = DeptService.class.getMethod("getDeptChildren", List.class);
+        depts = new ArrayList<>();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (long i = 1; i <= 20; i++) {
+            depts.add(new Dept(i, i / 5, "部门" + i, true, (int) i, now));
+        }
+    }
+
+    @Benchmark
+    public Object legacyNoArgs() {
+        return legacy.generate(target, queryAll);
+    }
+
+    @Benchmark
+    public Object structuralNoArgs() {
+        return structural.generate(target, queryAll);
+    }
+
+    @Benchmark
+    public Object legacyList() {
+        return legacy.generate(target, getDeptChildren, depts);
+    }
+
+    @Benchmark
+    public Object structuralList() {
+        return structural.generate(target, getDeptChildren, depts);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CacheKeyGeneratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+    public static class DeptService {
+
+        public List<Dept> queryAll() {
+            return null;
+        }
+
+        public List<Long> getDeptChildren(List<Dept> deptList) {
+            return null;
+        }
+    }
+
+    public static class Dept {
+
+        private final Long id;
+        private final Long pid;
+        private final String name;
+        private final Boolean enabled;
+        private final Integer deptSort;
+        private final Timestamp createTime;
+
+        Dept(Long id, Long pid, String name, Boolean enabled, Integer deptSort, Timestamp createTime) {
+            this.id = id;
+            this.pid = pid;
+            this.name = name;
+            this.enabled = enabled;
+            this.deptSort = deptSort;
+            this.createTime = createTime;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Long getPid() {
+            return pid;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Boolean getEnabled() {
+            return enabled;
+        }
+
+        public Integer getDeptSort() {
+            return deptSort;
+        }
+
+        public Timestamp getCreateTime() {
+            return createTime;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.admin.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CacheKeyGeneratorTest {
+
+    private final CacheKeyGenerator generator = new CacheKeyGenerator();
+    private final SampleService service = new SampleService();
+
+    /**
+     * key 只依赖参数的值，重启、换 JVM 后不变。修改哈希算法会使已有缓存全部失效，须同时修改这里的预期值
+     */
+    @Test
+    public void testStableKeys() throws Exception {
+        assertEquals("com.admin.config.CacheKeyGeneratorTest$SampleService.all", key("all"));
+        assertEquals("com.admin.config.CacheKeyGeneratorTest$SampleService.find:ffe73204c67ea8d6d1085c8b7c4ea88d", key("find", "admin"));
+        assertEquals("com.admin.config.CacheKeyGeneratorTest$SampleService.page:5fb5e9e174d72577c9d3b219d104fe1b", key("page", 1L, 10L));
+        assertEquals("com.admin.config.CacheKeyGeneratorTest$SampleService.query:10539c94e8c09be13e0affe4afdebcbb", key("query", new Criteria("admin", 1L, Arrays.asList(1L, 2L))));
+        assertEquals(key("find", "admin"), new CacheKeyGenerator().generate(service, method("find"), "admin"));
+    }
+
+    /**
+     * 前缀使用类的全限定名，不同包中的同名类不会冲突
+     */
+    @Test
+    public void testQualifiedPrefix() throws Exception {
+        Object key = generator.generate(new Object(), Object.class.getMethod("toString"));
+        assertEquals("java.lang.Object.toString", key);
+        assertNotEquals(key("all"), generator.generate(new Other.SampleService(), Other.SampleService.class.getMethod("all")));
+    }
+
+    /**
+     * 重载的方法加上参数类型
+     */
+    @Test
+    public void testOverloads() throws Exception {
+        assertTrue(generator.generate(service, SampleService.class.getMethod("get", Long.class), 1L).toString()
+                .startsWith("com.admin.config.CacheKeyGeneratorTest$SampleService.get(java.lang.Long):"));
+        assertTrue(generator.generate(service, SampleService.class.getMethod("get", String.class), "1").toString()
+                .startsWith("com.admin.config.CacheKeyGeneratorTest$SampleService.get(java.lang.String):"));
+    }
+
+    /**
+     * 参数顺序、空值及类型不同时 key 不同
+     */
+    @Test
+    public void testDistinctKeys() throws Exception {
+        assertNotEquals(key("page", 1L, 2L), key("page", 2L, 1L));
+        assertNotEquals(key("page", null, 1L), key("page", 1L, null));
+        assertNotEquals(key("page", null, null), key("page", 0L, 0L));
+        assertNotEquals(key("find", (Object) null), key("find", "null"));
+        assertNotEquals(key("find", ""), key("find", (Object) null));
+        assertNotEquals(key("query", Collections.emptyList()), key("query", Collections.singletonList(null)));
+        assertNotEquals(key("query", Arrays.asList("a", "b")), key("query", Arrays.asList("b", "a")));
+        assertNotEquals(key("query", Arrays.asList("ab", "")), key("query", Arrays.asList("a", "b")));
+        assertNotEquals(key("query", "1"), key("query", 1L));
+        assertNotEquals(key("query", new Criteria("admin", 1L, null)), key("query", new Criteria("admin", 2L, null)));
+        assertNotEquals(key("query", new Criteria(null, 1L, null)), key("query", new Criteria("", 1L, null)));
+    }
+
+    /**
+     * 值相同的参数 key 相同，Set、Map 与顺序无关
+     */
+    @Test
+    public void testEqualKeys() throws Exception {
+        assertEquals(key("query", new Criteria("admin", 1L, Arrays.asList(1L, 2L))),
+                key("query", new Criteria("admin", 1L, new ArrayList<>(Arrays.asList(1L, 2L)))));
+        assertEquals(key("query", new LinkedHashSet<>(Arrays.asList("a", "b"))),
+                key("query", new LinkedHashSet<>(Arrays.asList("b", "a"))));
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", null);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", null);
+        second.put("a", 1);
+        assertEquals(key("query", first), key("query", second));
+        assertEquals(key("query", 1), key("query", 1L));
+    }
+
+    private String key(String name, Object... params) throws Exception {
+        return generator.generate(service, method(name), params).toString();
+    }
+
+    private static Method method(String name) {
+        for (Method method : SampleService.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    public static class SampleService {
+
+        public List<Object> all() {
+            return null;
+        }
+
+        public Object find(String name) {
+            return null;
+        }
+
+        public Object page(Long page, Long size) {
+            return null;
+        }
+
+        public Object query(Object criteria) {
+            return null;
+        }
+
+        public Object get(Long id) {
+            return null;
+        }
+
+        public Object get(String id) {
+            return null;
+        }
+    }
+
+    /**
+     * 与 SampleService 同名的另一个类
+     */
+    public static class Other {
+
+        public static class SampleService {
+
+            public List<Object> all() {
+                return null;
+            }
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Criteria {
+        private String name;
+        private Long deptId;
+        private List<Long> ids;
+    }
+}
@@ -0,0 +1,112 @@
+package com.admin.config;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressingRedisSerializerTest {
+
+    private static final int THRESHOLD = 64;
+
+    /**
+     * 达到阈值的值压缩后带有头部，并能还原
+     */
+    @Test
+    public void testRoundTrip() {
+        CacheMetrics metrics = new CacheMetrics();
+        CompressingRedisSerializer serializer = serializer(THRESHOLD, metrics);
+        byte[] raw = repeated(4096);
+        byte[] stored = serializer.serialize(raw);
+        assertEquals(CompressingRedisSerializer.MAGIC, stored[0]);
+        assertTrue(stored.length < raw.length);
+        assertEquals(raw.length, CompressingRedisSerializer.originalLength(stored));
+        assertArrayEquals(raw, (byte[]) serializer.deserialize(stored));
+        assertEquals(1, metrics.getCompression().getCount().sum());
+    }
+
+    /**
+     * 小于阈值的值不压缩，等于阈值时压缩
+     */
+    @Test
+    public void testThreshold() {
+        CompressingRedisSerializer serializer = serializer(THRESHOLD, new CacheMetrics());
+        byte[] below = repeated(THRESHOLD - 1);
+        assertArrayEquals(below, serializer.serialize(below));
+        byte[] exact = repeated(THRESHOLD);
+        byte[] stored = serializer.serialize(exact);
+        assertTrue(CompressingRedisSerializer.isCompressed(stored));
+        assertArrayEquals(exact, (byte[]) serializer.deserialize(stored));
+    }
+
+    /**
+     * 阈值小于等于 0 时不压缩，字符串、数字与布尔值不压缩，压缩效果不足时按原样保存
+     */
+    @Test
+    public void testNotCompressed() {
+        byte[] raw = repeated(4096);
+        assertArrayEquals(raw, serializer(0, new CacheMetrics()).serialize(raw));
+        CompressingRedisSerializer serializer = serializer(THRESHOLD, new CacheMetrics());
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+        random[0] = 'x';
+        assertArrayEquals(random, serializer.serialize(random));
+        String text = new String(raw, StandardCharsets.UTF_8);
+        assertFalse(CompressingRedisSerializer.isCompressed(serializer.serialize(text)));
+    }
+
+    /**
+     * 开启压缩前写入、恰好以头部字节开头的旧值原样交给下层反序列化
+     */
+    @Test
+    public void testOldValueStartingWithMagic() {
+        CompressingRedisSerializer serializer = serializer(THRESHOLD, new CacheMetrics());
+        byte[][] values = {
+                {CompressingRedisSerializer.MAGIC, 5, 'h', 'e', 'l', 'l', 'o'},
+                {CompressingRedisSerializer.MAGIC, 2, 0x78, 0x00},
+                {CompressingRedisSerializer.MAGIC, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 1, 0x78, 0x01},
+                {CompressingRedisSerializer.MAGIC},
+                {CompressingRedisSerializer.MAGIC, (byte) 0x80}
+        };
+        for (byte[] value : values) {
+            assertFalse(Arrays.toString(value), CompressingRedisSerializer.isCompressed(value));
+            assertEquals(-1, CompressingRedisSerializer.originalLength(value));
+            assertArrayEquals(value, (byte[]) serializer.deserialize(value));
+        }
+    }
+
+    private static CompressingRedisSerializer serializer(int threshold, CacheMetrics metrics) {
+        return new CompressingRedisSerializer(new BytesSerializer(), threshold, metrics);
+    }
+
+    private static byte[] repeated(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + i % 8);
+        }
+        return bytes;
+    }
+
+    /**
+     * 原样读写字节，便于构造任意的已有数据
+     */
+    private static class BytesSerializer implements RedisSerializer<Object> {
+
+        @Override
+        public byte[] serialize(Object o) {
+            return o instanceof String ? ((String) o).getBytes(StandardCharsets.UTF_8) : (byte[]) o;
+        }
+
+        @Override
+        public Object deserialize(byte[] bytes) {
+            return bytes;
+        }
+    }
+}
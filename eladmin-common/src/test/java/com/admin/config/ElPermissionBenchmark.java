@@ -0,0 +1,67 @@
+package com.admin.config;
+
+import com.admin.utils.PermissionSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 对比 @el.check 原有的权限列表线性查找与权限位图的耗时及内存分配，
+ * 分配情况见结果中的 gc.alloc.rate.norm（字节/次）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElPermissionBenchmark {
+
+    @Param({"10", "300"})
+    private int authorityCount;
+
+    private List<GrantedAuthority> authorities;
+    private PermissionSet permissions;
+    private String[] required;
+
+    @Setup
+    public void setup() {
+        authorities = new ArrayList<>();
+        for (int i = 0; i < authorityCount; i++) {
+            authorities.add(new SimpleGrantedAuthority("module" + i + ":list"));
+        }
+        permissions = PermissionSet.of(authorities);
+        // 最坏情况：所需权限位于列表末尾
+        required = new String[]{"module" + (authorityCount - 1) + ":edit", "module" + (authorityCount - 1) + ":list"};
+    }
+
+    @Benchmark
+    public Boolean authorityList() {
+        List<String> elPermissions = authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+        return elPermissions.contains("admin") || Arrays.stream(required).anyMatch(elPermissions::contains);
+    }
+
+    @Benchmark
+    public Boolean permissionSet() {
+        return permissions.check(required);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ElPermissionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,119 @@
+package com.admin.config;
+
+import org.junit.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TwoLevelCacheTest {
+
+    private static final String KEY = "auth:1";
+
+    /**
+     * 权限被收回后，未拿到租约的节点不能返回收回前的权限
+     */
+    @Test
+    public void testRevokedAuthorityWithoutLease() {
+        LocalCacheProperties properties = properties();
+        properties.setNoStaleCaches(Collections.emptySet());
+        TwoLevelCache cache = cache("role", properties, false);
+        cache.put(KEY, "role:old");
+        cache.evict(KEY);
+        assertEquals("role:new", cache.get(KEY, () -> "role:new"));
+    }
+
+    /**
+     * 权限被收回后，本节点等待重建的线程不能返回收回前的权限
+     */
+    @Test
+    public void testRevokedAuthorityWhileRebuilding() throws Exception {
+        TwoLevelCache cache = cache("role", properties(), true);
+        cache.put(KEY, "role:old");
+        cache.evict(KEY);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> loader = executor.submit(() -> cache.get(KEY, () -> {
+                loading.countDown();
+                release.await();
+                return "role:new";
+            }));
+            loading.await();
+            Future<String> waiter = executor.submit(() -> cache.get(KEY, () -> "role:other"));
+            release.countDown();
+            assertEquals("role:new", loader.get(5, TimeUnit.SECONDS));
+            assertEquals("role:new", waiter.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 权限相关的缓存不保留旧值
+     */
+    @Test
+    public void testNoStaleCaches() {
+        LocalCacheProperties properties = properties();
+        assertEquals(Long.valueOf(0), properties.getSpec("role").getStaleTtl());
+        assertEquals(Long.valueOf(0), properties.getSpec("user").getStaleTtl());
+        assertEquals(Long.valueOf(properties.getStaleTtl()), properties.getSpec("dict").getStaleTtl());
+        properties.setEnabled(false);
+        assertNull(properties.getSpec("dict"));
+    }
+
+    /**
+     * Redis 不可用时 sync 读取直接查询数据，并记录异常次数
+     */
+    @Test
+    public void testRedisUnavailable() {
+        org.springframework.cache.Cache redisCache = mock(org.springframework.cache.Cache.class);
+        when(redisCache.get(any())).thenThrow(new RedisConnectionFailureException("down"));
+        doThrow(new RedisConnectionFailureException("down")).when(redisCache).put(any(), any());
+        CacheManager redisCacheManager = mock(CacheManager.class);
+        when(redisCacheManager.getCache("dept")).thenReturn(redisCache);
+        CacheMetrics metrics = new CacheMetrics();
+        TwoLevelCache cache = cache("dept", properties(), true, redisCacheManager, metrics);
+        assertEquals("dept:1", cache.get(KEY, () -> "dept:1"));
+        assertEquals(1, metrics.cache("dept").getErrors().sum());
+    }
+
+    private static LocalCacheProperties properties() {
+        LocalCacheProperties properties = new LocalCacheProperties();
+        properties.setLeaseWait(100);
+        return properties;
+    }
+
+    private static TwoLevelCache cache(String name, LocalCacheProperties properties, boolean leaseAvailable) {
+        return cache(name, properties, leaseAvailable, new ConcurrentMapCacheManager(), new CacheMetrics());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TwoLevelCache cache(String name, LocalCacheProperties properties, boolean leaseAvailable,
+                                       CacheManager redisCacheManager, CacheMetrics metrics) {
+        RedisTemplate<Object, Object> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<Object, Object> operations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(operations);
+        when(operations.setIfAbsent(any(), any(), anyLong(), any(TimeUnit.class))).thenReturn(leaseAvailable);
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, properties,
+                redisTemplate, metrics);
+        return (TwoLevelCache) cacheManager.getCache(name);
+    }
+}
@@ -0,0 +1,190 @@
+package com.admin.utils;
+
+import lombok.Data;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    private final BinaryCodec codec = new BinaryCodec().register(1, Item.class).register(2, Child.class);
+
+    /**
+     * 各种简单类型
+     */
+    @Test
+    public void testScalars() {
+        Timestamp timestamp = new Timestamp(1600000000123L);
+        timestamp.setNanos(123456789);
+        Object[] values = {null, true, false, 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, 0L, Long.MAX_VALUE,
+                Long.MIN_VALUE, "", "中文 text", 1.5d, Double.NaN, -0.25f, (short) -7, (byte) 0x7F, '字',
+                new BigDecimal("12345678901234567890.0100"), new BigInteger("-98765432109876543210"),
+                new Date(1600000000000L), timestamp, LocalDateTime.of(2020, 5, 1, 12, 30, 15, 1000),
+                LocalDate.of(2020, 2, 29), Level.HIGH};
+        for (Object value : values) {
+            Object decoded = roundTrip(value);
+            assertEquals(String.valueOf(value), value, decoded);
+            if (value != null) {
+                assertEquals(value.getClass(), decoded.getClass());
+            }
+        }
+        assertArrayEquals(new byte[]{1, -2, 3}, (byte[]) roundTrip(new byte[]{1, -2, 3}));
+    }
+
+    /**
+     * 嵌套集合，保持元素顺序及非默认的集合类型
+     */
+    @Test
+    public void testCollections() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("b", Arrays.asList(1L, null, "x"));
+        map.put("a", new LinkedHashSet<>(Arrays.asList(3, 1, 2)));
+        map.put("c", Collections.singletonMap("k", new ArrayList<>(Collections.singletonList(new HashMap<>()))));
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        sorted.put("z", 1);
+        sorted.put("y", 2);
+        map.put("d", sorted);
+        map.put(null, Collections.emptyList());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> decoded = (Map<String, Object>) roundTrip(map);
+        assertEquals(map, decoded);
+        assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(decoded.keySet()));
+        assertEquals(Arrays.asList(3, 1, 2), new ArrayList<>((Set<?>) decoded.get("a")));
+        assertEquals(TreeMap.class, decoded.get("d").getClass());
+    }
+
+    /**
+     * 对象及嵌套对象，同一类型多次出现时共用字段表
+     */
+    @Test
+    public void testObjects() {
+        Item item = item(1L, "first");
+        item.setChildren(Arrays.asList(child("a"), child("b"), null));
+        item.setParent(item(2L, "parent"));
+        Item decoded = (Item) roundTrip(item);
+        assertEquals(item, decoded);
+
+        List<Item> items = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            items.add(item(i, "item" + i));
+        }
+        assertEquals(items, roundTrip(items));
+        byte[] one = codec.encode(Collections.singletonList(item(0L, "item0")));
+        byte[] ten = codec.encode(items);
+        assertTrue(ten.length < one.length * 10);
+    }
+
+    /**
+     * 按字段名对应：新增的字段保持默认值，已删除的字段丢弃，数字类型变化时转换
+     */
+    @Test
+    public void testSchemaEvolution() {
+        BinaryCodec oldCodec = new BinaryCodec().register(1, OldItem.class);
+        OldItem old = new OldItem();
+        old.setId(7);
+        old.setName("old");
+        old.setRemoved("gone");
+        Item decoded = (Item) codec.decode(oldCodec.encode(old));
+        assertEquals(Long.valueOf(7), decoded.getId());
+        assertEquals("old", decoded.getName());
+        assertNull(decoded.getChildren());
+        assertEquals(0, decoded.getCount());
+    }
+
+    /**
+     * 未注册的类型写入类名，仍能读取
+     */
+    @Test
+    public void testUnregistered() {
+        Child child = child("x");
+        assertEquals(child, new BinaryCodec().decode(new BinaryCodec().encode(child)));
+    }
+
+    /**
+     * 数据头及无法编码、无法识别的数据
+     */
+    @Test
+    public void testInvalid() {
+        byte[] bytes = codec.encode("x");
+        assertEquals(BinaryCodec.MAGIC, bytes[0]);
+        assertEquals(BinaryCodec.VERSION, bytes[1]);
+        assertTrue(BinaryCodec.isBinary(bytes));
+        assertFalse(BinaryCodec.isBinary("{\"a\":1}".getBytes()));
+        assertFalse(BinaryCodec.isBinary(null));
+        assertInvalid(() -> codec.decode("{}".getBytes()));
+        assertInvalid(() -> codec.decode(new byte[]{BinaryCodec.MAGIC, 99, 0}));
+        assertInvalid(() -> codec.decode(new byte[]{BinaryCodec.MAGIC, BinaryCodec.VERSION, 127}));
+        assertInvalid(() -> codec.encode(Optional.of(1)));
+        assertInvalid(() -> codec.register(1, Child.class));
+        assertInvalid(() -> codec.register(0, Level.class));
+    }
+
+    private Object roundTrip(Object value) {
+        return codec.decode(codec.encode(value));
+    }
+
+    private static void assertInvalid(Runnable runnable) {
+        try {
+            runnable.run();
+            fail("应抛出 IllegalArgumentException");
+        } catch (IllegalArgumentException ignored) {
+            // 预期的异常
+        }
+    }
+
+    private static Item item(Long id, String name) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setCount(id.intValue());
+        item.setEnabled(true);
+        item.setCreateTime(new Timestamp(1600000000000L + id));
+        item.setTags(new LinkedHashSet<>(Arrays.asList("t" + id, "common")));
+        item.setLevel(Level.LOW);
+        return item;
+    }
+
+    private static Child child(String name) {
+        Child child = new Child();
+        child.setName(name);
+        child.setAttributes(Collections.singletonMap("key", name));
+        return child;
+    }
+
+    public enum Level {
+        LOW, HIGH
+    }
+
+    @Data
+    public static class Item {
+        private Long id;
+        private String name;
+        private int count;
+        private Boolean enabled;
+        private Timestamp createTime;
+        private Set<String> tags;
+        private Level level;
+        private List<Child> children;
+        private Item parent;
+    }
+
+    @Data
+    public static class Child {
+        private String name;
+        private Map<String, String> attributes;
+    }
+
+    @Data
+    public static class OldItem {
+        private Integer id;
+        private String name;
+        private String removed;
+    }
+}
@@ -2,6 +2,12 @@ package com.admin.utils;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static com.admin.utils.EncryptUtils.desDecrypt;
 import static com.admin.utils.EncryptUtils.desEncrypt;
 import static org.junit.Assert.assertEquals;
@@ -31,4 +37,31 @@ public class EncryptUtilsTest {
             e.printStackTrace();
         }
     }
+
+    /**
+     * 多线程加解密，每个线程复用自己的 Cipher
+     */
+    @Test
+    public void testConcurrentDes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String text = "text-" + thread + "-" + i;
+                        assertEquals(text, desDecrypt(desEncrypt(text)));
+                        assertEquals("7772841DC6099402", desEncrypt("123456"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
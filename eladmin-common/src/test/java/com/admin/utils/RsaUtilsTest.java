@@ -0,0 +1,90 @@
+package com.admin.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.admin.utils.RsaUtils.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class RsaUtilsTest {
+
+    /**
+     * 公钥加密私钥解密，私钥加密公钥解密
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        RsaKeyPair keyPair = generateKeyPair();
+        assertEquals("123456", decryptByPrivateKey(keyPair.getPrivateKey(),
+                encryptByPublicKey(keyPair.getPublicKey(), "123456")));
+        assertEquals("123456", decryptByPublicKey(keyPair.getPublicKey(),
+                encryptByPrivateKey(keyPair.getPrivateKey(), "123456")));
+    }
+
+    /**
+     * 更换密钥文本后使用新的密钥，不会沿用之前缓存的密钥
+     */
+    @Test
+    public void testKeyChange() throws Exception {
+        RsaKeyPair first = generateKeyPair();
+        RsaKeyPair second = generateKeyPair();
+        String encrypted = encryptByPublicKey(first.getPublicKey(), "first");
+        assertEquals("first", decryptByPrivateKey(first.getPrivateKey(), encrypted));
+        try {
+            assertNotEquals("first", decryptByPrivateKey(second.getPrivateKey(), encrypted));
+        } catch (Exception ignored) {
+            // 密钥不匹配，解密失败
+        }
+        assertEquals("second", decryptByPrivateKey(second.getPrivateKey(),
+                encryptByPublicKey(second.getPublicKey(), "second")));
+        assertEquals("first", decryptByPrivateKey(first.getPrivateKey(), encrypted));
+    }
+
+    /**
+     * 多线程交替使用两组密钥，每个线程复用自己的 Cipher
+     */
+    @Test
+    public void testConcurrentRoundTrip() throws Exception {
+        RsaKeyPair[] keyPairs = {generateKeyPair(), generateKeyPair()};
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        RsaKeyPair keyPair = keyPairs[(thread + i) % keyPairs.length];
+                        String text = "text-" + thread + "-" + i;
+                        assertEquals(text, decryptByPrivateKey(keyPair.getPrivateKey(),
+                                encryptByPublicKey(keyPair.getPublicKey(), text)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 密钥文本错误时抛出异常
+     */
+    @Test
+    public void testInvalidKey() {
+        try {
+            encryptByPublicKey("invalid", "123456");
+            fail("应抛出异常");
+        } catch (Exception ignored) {
+            // 预期的异常
+        }
+    }
+}
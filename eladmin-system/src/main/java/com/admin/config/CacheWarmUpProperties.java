@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动时缓存预热配置
+ *
+ * @author adyfang
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "cache-warm-up")
+public class CacheWarmUpProperties {
+
+    /**
+     * 是否在启动时预热
+     */
+    private boolean enabled = true;
+
+    /**
+     * 并行执行的线程数
+     */
+    private int threads = 4;
+
+    /**
+     * 最长等待时间，此处单位/毫秒，超时后不再等待，服务照常启动
+     */
+    private long timeout = 60000;
+
+    /**
+     * 按最近登录的在线会话预热用户相关缓存时，读取的会话数量
+     */
+    private int topUsers = 100;
+
+    /**
+     * 启用的加载项名称，为空时全部启用
+     */
+    private List<String> loaders = new ArrayList<>();
+}
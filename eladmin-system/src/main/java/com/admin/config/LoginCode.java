@@ -60,6 +60,18 @@ public class LoginCode implements Serializable {
      * 验证码高度
      */
     private Integer fontSize = 25;
+    /**
+     * 预先渲染的验证码数量，为 0 时每次请求直接渲染
+     */
+    private Integer poolSize = 200;
+    /**
+     * 渲染验证码的后台线程数
+     */
+    private Integer poolThreads = 2;
+    /**
+     * 验证码池为空时等待后台补充的最长时间，超时返回 429，此处单位/毫秒
+     */
+    private Long poolWait = 200L;
 
 
 }
@@ -40,6 +40,31 @@ public class LoginProperties {
      */
     private boolean cacheEnable;
 
+    /**
+     * 用户登录信息缓存最大数量
+     */
+    private long cacheSize = 1000;
+
+    /**
+     * 用户登录信息缓存时间，此处单位/毫秒
+     */
+    private long cacheTtl = 1800000;
+
+    /**
+     * 计算密码哈希的线程数
+     */
+    private int passwordThreads = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+
+    /**
+     * 登录时计算密码哈希的最大排队数量
+     */
+    private int passwordQueue = 100;
+
+    /**
+     * 排队已满时等待入队的最长时间，超时则拒绝登录，此处单位/毫秒
+     */
+    private long passwordMaxWait = 2000;
+
     /**
      * 验证码配置
      */
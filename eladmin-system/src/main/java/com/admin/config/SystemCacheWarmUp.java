@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import com.admin.modules.system.service.dto.UserDto;
+import com.admin.system.model.DictModel;
+import com.admin.system.security.service.OnlineUserIndex;
+import com.admin.system.service.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+/**
+ * 系统模块启动时预热的缓存：
+ * <ul>
+ *     <li>dept：全部部门</li>
+ *     <li>dict：每个字典的字典详情</li>
+ *     <li>user：最近登录的在线用户的用户信息、菜单、权限及数据权限</li>
+ * </ul>
+ *
+ * @author adyfang
+ */
+@Configuration
+@RequiredArgsConstructor
+public class SystemCacheWarmUp {
+
+    private final CacheWarmUpProperties properties;
+    private final IDeptService deptService;
+    private final IDictService dictService;
+    private final IDictDetailService dictDetailService;
+    private final IUserService userService;
+    private final IMenuService menuService;
+    private final IRoleService roleService;
+    private final IDataService dataService;
+    private final OnlineUserIndex onlineUserIndex;
+
+    @Bean
+    public CacheWarmUpLoader deptWarmUpLoader() {
+        return CacheWarmUpLoader.of("dept", () -> Collections.<Runnable>singletonList(deptService::queryAll));
+    }
+
+    @Bean
+    public CacheWarmUpLoader dictWarmUpLoader() {
+        return CacheWarmUpLoader.of("dict", () -> dictService.list().stream()
+                .map(DictModel::getName)
+                .<Runnable>map(name -> () -> dictDetailService.getDictByName(name))
+                .collect(Collectors.toList()));
+    }
+
+    @Bean
+    public CacheWarmUpLoader userWarmUpLoader() {
+        return CacheWarmUpLoader.of("user", () -> onlineUserIndex.recentUsers(properties.getTopUsers()).stream()
+                .<Runnable>map(username -> () -> {
+                    UserDto user = userService.findByName(username);
+                    if (user != null) {
+                        menuService.findByUser(user.getId());
+                        roleService.mapToGrantedAuthorities(user);
+                        dataService.getDeptIds(user);
+                    }
+                })
+                .collect(Collectors.toList()));
+    }
+}
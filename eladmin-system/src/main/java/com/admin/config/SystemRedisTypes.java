@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import com.admin.modules.security.service.dto.OnlineUserDto;
+import com.admin.modules.system.service.dto.*;
+import com.admin.system.model.DeptModel;
+import com.admin.utils.BinaryCodec;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * 系统模块缓存对象的二进制编码类型编号，使用 1 ~ 99，只能追加，不可修改或复用
+ *
+ * @author adyfang
+ */
+@Component
+public class SystemRedisTypes implements RedisTypeRegistrar {
+
+    @Override
+    public void register(BinaryCodec codec) {
+        codec.register(1, OnlineUserDto.class)
+                .register(2, UserDto.class)
+                .register(3, RoleSmallDto.class)
+                .register(4, JobSmallDto.class)
+                .register(5, DeptSmallDto.class)
+                .register(6, MenuDto.class)
+                .register(7, DeptDto.class)
+                .register(8, DeptModel.class)
+                .register(9, RoleDto.class)
+                .register(10, JobDto.class)
+                .register(11, DictDto.class)
+                .register(12, DictSmallDto.class)
+                .register(13, DictDetailDto.class)
+                .register(14, SimpleGrantedAuthority.class);
+    }
+}
@@ -16,14 +16,18 @@
 package com.admin.modules.security.config;
 
 import com.admin.annotation.AnonymousAccess;
+import com.admin.config.LoginProperties;
 import com.admin.config.SecurityProperties;
 import com.admin.utils.enums.RequestMethodEnum;
 import com.admin.modules.security.security.JwtAccessDeniedHandler;
 import com.admin.modules.security.security.JwtAuthenticationEntryPoint;
+import com.admin.modules.security.security.AnonymousRouteMatcher;
+import com.admin.modules.security.security.BoundedLoginExecutor;
 import com.admin.modules.security.security.TokenConfigurer;
 import com.admin.modules.security.security.TokenProvider;
 import com.admin.system.security.service.AdminOnlineUserService;
-import com.admin.system.security.service.UserCacheClean;
+import com.admin.system.security.service.RevokedTokenFilter;
+import com.admin.system.security.service.UserActivityService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -32,6 +36,7 @@ import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configurers.ExpressionUrlAuthorizationConfigurer;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.core.GrantedAuthorityDefaults;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -61,8 +66,10 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     private final JwtAccessDeniedHandler jwtAccessDeniedHandler;
     private final ApplicationContext applicationContext;
     private final SecurityProperties properties;
+    private final LoginProperties loginProperties;
     private final AdminOnlineUserService onlineUserService;
-    private final UserCacheClean userCacheClean;
+    private final RevokedTokenFilter revokedTokenFilter;
+    private final UserActivityService userActivityService;
 
     @Bean
     GrantedAuthorityDefaults grantedAuthorityDefaults() {
@@ -76,13 +83,21 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return new BCryptPasswordEncoder();
     }
 
+    @Bean
+    public BoundedLoginExecutor boundedLoginExecutor() {
+        // 登录认证在独立的有界线程池中执行
+        return new BoundedLoginExecutor(loginProperties);
+    }
+
     @Override
     protected void configure(HttpSecurity httpSecurity) throws Exception {
         // 搜寻匿名标记 url： @AnonymousAccess
         Map<RequestMappingInfo, HandlerMethod> handlerMethodMap = applicationContext.getBean(RequestMappingHandlerMapping.class).getHandlerMethods();
         // 获取匿名标记
         Map<String, Set<String>> anonymousUrls = getAnonymousUrl(handlerMethodMap);
-        httpSecurity
+        // 放行的路径预先编译，TokenFilter 据此跳过会话查询
+        AnonymousRouteMatcher anonymousRoutes = getAnonymousRoutes(anonymousUrls);
+        ExpressionUrlAuthorizationConfigurer<HttpSecurity>.ExpressionInterceptUrlRegistry registry = httpSecurity
                 // 禁用 CSRF
                 .csrf().disable()
                 .addFilterBefore(corsFilter, UsernamePasswordAuthenticationFilter.class)
@@ -103,46 +118,42 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
 
                 .and()
-                .authorizeRequests()
+                .authorizeRequests();
+        // 静态资源、文件及匿名访问的接口放行
+        anonymousRoutes.getRoutes().forEach((method, patterns) ->
+                registry.antMatchers(method, patterns.toArray(new String[0])).permitAll());
+        registry
+                // 所有请求都需要认证
+                .anyRequest().authenticated()
+                .and().apply(securityConfigurerAdapter(anonymousRoutes));
+    }
+
+    private AnonymousRouteMatcher getAnonymousRoutes(Map<String, Set<String>> anonymousUrls) {
+        return new AnonymousRouteMatcher()
                 // 静态资源等等
-                .antMatchers(
-                        HttpMethod.GET,
+                .add(HttpMethod.GET,
                         "/*.html",
                         "/**/*.html",
                         "/**/*.css",
                         "/**/*.js",
                         "/webSocket/**"
-                ).permitAll()
+                )
                 // swagger 文档
-                .antMatchers("/swagger-ui.html").permitAll()
-                .antMatchers("/swagger-resources/**").permitAll()
-                .antMatchers("/webjars/**").permitAll()
-                .antMatchers("/*/api-docs").permitAll()
+                .add(null, "/swagger-ui.html", "/swagger-resources/**", "/webjars/**", "/*/api-docs")
                 // 文件
-                .antMatchers("/avatar/**").permitAll()
-                .antMatchers("/file/**").permitAll()
+                .add(null, "/avatar/**", "/file/**")
                 // 阿里巴巴 druid
-                .antMatchers("/druid/**").permitAll()
+                .add(null, "/druid/**")
                 // 放行OPTIONS请求
-                .antMatchers(HttpMethod.OPTIONS, "/**").permitAll()
-                // // 自定义匿名访问所有url放行 ： 允许匿名和带权限以及登录用户访问
-                //  .antMatchers(anonymousUrls.toArray(new String[0])).permitAll()
+                .add(HttpMethod.OPTIONS, "/**")
                 // 自定义匿名访问所有url放行：允许匿名和带Token访问，细腻化到每个 Request 类型
-                // GET
-                .antMatchers(HttpMethod.GET, anonymousUrls.get(RequestMethodEnum.GET.getType()).toArray(new String[0])).permitAll()
-                // POST
-                .antMatchers(HttpMethod.POST, anonymousUrls.get(RequestMethodEnum.POST.getType()).toArray(new String[0])).permitAll()
-                // PUT
-                .antMatchers(HttpMethod.PUT, anonymousUrls.get(RequestMethodEnum.PUT.getType()).toArray(new String[0])).permitAll()
-                // PATCH
-                .antMatchers(HttpMethod.PATCH, anonymousUrls.get(RequestMethodEnum.PATCH.getType()).toArray(new String[0])).permitAll()
-                // DELETE
-                .antMatchers(HttpMethod.DELETE, anonymousUrls.get(RequestMethodEnum.DELETE.getType()).toArray(new String[0])).permitAll()
+                .add(HttpMethod.GET, anonymousUrls.get(RequestMethodEnum.GET.getType()))
+                .add(HttpMethod.POST, anonymousUrls.get(RequestMethodEnum.POST.getType()))
+                .add(HttpMethod.PUT, anonymousUrls.get(RequestMethodEnum.PUT.getType()))
+                .add(HttpMethod.PATCH, anonymousUrls.get(RequestMethodEnum.PATCH.getType()))
+                .add(HttpMethod.DELETE, anonymousUrls.get(RequestMethodEnum.DELETE.getType()))
                 // 所有类型的接口都放行
-                .antMatchers(anonymousUrls.get(RequestMethodEnum.ALL.getType()).toArray(new String[0])).permitAll()
-                // 所有请求都需要认证
-                .anyRequest().authenticated()
-                .and().apply(securityConfigurerAdapter());
+                .add(null, anonymousUrls.get(RequestMethodEnum.ALL.getType()));
     }
 
     private Map<String, Set<String>> getAnonymousUrl(Map<RequestMappingInfo, HandlerMethod> handlerMethodMap) {
@@ -190,7 +201,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return anonymousUrls;
     }
 
-    private TokenConfigurer securityConfigurerAdapter() {
-        return new TokenConfigurer(tokenProvider, properties, onlineUserService, userCacheClean);
+    private TokenConfigurer securityConfigurerAdapter(AnonymousRouteMatcher anonymousRoutes) {
+        return new TokenConfigurer(tokenProvider, properties, onlineUserService, revokedTokenFilter,
+                userActivityService, anonymousRoutes);
     }
 }
@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.modules.security.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+
+/**
+ * 匿名访问及静态资源路径匹配，启动时预先编译，供 TokenFilter 按请求快速判断：
+ * <ul>
+ *     <li>不含通配符的路径放入按请求方式区分的 Set，直接查找</li>
+ *     <li>形如 /**&#47;*.js 的后缀规则按扩展名查找</li>
+ *     <li>其余规则按不含通配符的路径前缀放入前缀树，只对沿途节点上的规则使用 AntPathMatcher 匹配</li>
+ * </ul>
+ * 匹配规则与 Spring Security 的 antMatchers 一致，个别写法存在差异时只会未命中，不会误放行
+ *
+ * @author adyfang
+ */
+public class AnonymousRouteMatcher {
+
+    private static final String PATH_SEPARATOR = "/";
+    private static final String ANY_PATH = "/**";
+    private static final String SUFFIX_PREFIX = "/**/*.";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 注册的全部规则，key 为空代表全部请求方式
+     */
+    private final Map<HttpMethod, Set<String>> routes = new LinkedHashMap<>();
+
+    /**
+     * 按请求方式编译后的规则，全部请求方式的规则 key 为空
+     */
+    private final Map<String, Routes> compiled = new HashMap<>();
+
+    /**
+     * 添加放行规则
+     *
+     * @param method   请求方式，为空代表全部请求方式
+     * @param patterns Ant 风格的路径
+     * @return /
+     */
+    public AnonymousRouteMatcher add(HttpMethod method, String... patterns) {
+        return add(method, Arrays.asList(patterns));
+    }
+
+    /**
+     * 添加放行规则
+     *
+     * @param method   请求方式，为空代表全部请求方式
+     * @param patterns Ant 风格的路径
+     * @return /
+     */
+    public AnonymousRouteMatcher add(HttpMethod method, Collection<String> patterns) {
+        if (patterns.isEmpty()) {
+            return this;
+        }
+        routes.computeIfAbsent(method, k -> new LinkedHashSet<>()).addAll(patterns);
+        Routes target = compiled.computeIfAbsent(method == null ? null : method.name(), k -> new Routes());
+        patterns.forEach(target::add);
+        return this;
+    }
+
+    /**
+     * 注册的全部规则，用于配置 Spring Security 放行
+     *
+     * @return key 为空代表全部请求方式
+     */
+    public Map<HttpMethod, Set<String>> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * @param request /
+     * @return 是否为匿名访问或静态资源路径
+     */
+    public boolean matches(HttpServletRequest request) {
+        return matches(request.getMethod(), requestPath(request));
+    }
+
+    /**
+     * @param method 请求方式
+     * @param path   请求路径
+     * @return 是否为匿名访问或静态资源路径
+     */
+    public boolean matches(String method, String path) {
+        Routes routes = compiled.get(method);
+        if (routes != null && routes.matches(path)) {
+            return true;
+        }
+        routes = compiled.get(null);
+        return routes != null && routes.matches(path);
+    }
+
+    /**
+     * 与 AntPathRequestMatcher 取相同的路径
+     */
+    private static String requestPath(HttpServletRequest request) {
+        String path = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        return pathInfo == null ? path : path + pathInfo;
+    }
+
+    private static boolean isLiteral(String segment) {
+        return segment.indexOf('*') < 0 && segment.indexOf('?') < 0 && segment.indexOf('{') < 0;
+    }
+
+    /**
+     * 同一请求方式下的规则
+     */
+    private class Routes {
+
+        private final Set<String> exact = new HashSet<>();
+        private final Set<String> suffixes = new HashSet<>();
+        private final Node root = new Node();
+        private boolean any;
+
+        void add(String pattern) {
+            if (ANY_PATH.equals(pattern)) {
+                any = true;
+            } else if (isLiteral(pattern)) {
+                exact.add(pattern);
+            } else if (pattern.startsWith(SUFFIX_PREFIX) && isLiteral(pattern.substring(SUFFIX_PREFIX.length()))) {
+                suffixes.add(pattern.substring(SUFFIX_PREFIX.length() - 1));
+            } else {
+                Node node = root;
+                for (String segment : pattern.split(PATH_SEPARATOR)) {
+                    if (segment.isEmpty()) {
+                        continue;
+                    }
+                    if (!isLiteral(segment)) {
+                        break;
+                    }
+                    node = node.children.computeIfAbsent(segment, k -> new Node());
+                }
+                node.patterns.add(pattern);
+            }
+        }
+
+        boolean matches(String path) {
+            if (any || exact.contains(path)) {
+                return true;
+            }
+            int slash = path.lastIndexOf('/');
+            int dot = path.lastIndexOf('.');
+            if (dot > slash && !suffixes.isEmpty() && suffixes.contains(path.substring(dot))) {
+                return true;
+            }
+            // 沿路径逐段进入前缀树，检查途经节点上的规则
+            Node node = root;
+            int start = 0;
+            while (node != null) {
+                for (String pattern : node.patterns) {
+                    if (pathMatcher.match(pattern, path)) {
+                        return true;
+                    }
+                }
+                if (node.children.isEmpty()) {
+                    return false;
+                }
+                while (start < path.length() && path.charAt(start) == '/') {
+                    start++;
+                }
+                if (start >= path.length()) {
+                    return false;
+                }
+                int end = path.indexOf('/', start);
+                end = end < 0 ? path.length() : end;
+                node = node.children.get(path.substring(start, end));
+                start = end;
+            }
+            return false;
+        }
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<String> patterns = new ArrayList<>();
+    }
+}
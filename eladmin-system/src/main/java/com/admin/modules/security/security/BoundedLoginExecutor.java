@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.modules.security.security;
+
+import com.admin.config.LoginProperties;
+import com.admin.exception.BadRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在独立的有界线程池中执行登录认证。
+ * BCrypt 计算很耗 CPU，大量登录同时到达时只在该线程池排队，不占满 Tomcat 线程；
+ * 队列已满时最多等待 passwordMaxWait 入队，仍未入队则拒绝，登录请求快速失败。
+ * 只用于登录，新增用户、修改密码等接口仍直接使用全局的 PasswordEncoder，不受影响
+ *
+ * @author adyfang
+ */
+@Slf4j
+public class BoundedLoginExecutor implements DisposableBean {
+
+    /**
+     * 入队后等待结果的最长时间，防止线程池异常时请求线程一直阻塞
+     */
+    private static final long HASH_TIMEOUT = 10000;
+
+    private final BlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalWait = new AtomicLong();
+    private final AtomicLong maxWaitObserved = new AtomicLong();
+    private final AtomicLong totalHash = new AtomicLong();
+
+    public BoundedLoginExecutor(LoginProperties properties) {
+        long maxWait = properties.getPasswordMaxWait();
+        this.queue = new ArrayBlockingQueue<>(properties.getPasswordQueue());
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(properties.getPasswordThreads(), properties.getPasswordThreads(),
+                0, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread thread = new Thread(r, "password-hash-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, (r, e) -> {
+            // 队列已满时在调用方线程等待入队，超时即拒绝
+            try {
+                if (!e.isShutdown() && e.getQueue().offer(r, maxWait, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            throw new RejectedExecutionException();
+        });
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * 在线程池中执行登录认证
+     *
+     * @param task 认证任务
+     * @param <T>  /
+     * @return 认证结果
+     */
+    public <T> T execute(Callable<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                long wait = started - submitted;
+                try {
+                    return task.call();
+                } finally {
+                    completed.incrementAndGet();
+                    totalWait.addAndGet(wait);
+                    maxWaitObserved.accumulateAndGet(wait, Math::max);
+                    totalHash.addAndGet(System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw busy();
+        }
+        try {
+            return future.get(HASH_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw busy();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw busy();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 线程池运行情况
+     *
+     * @return /
+     */
+    public Map<String, Object> stats() {
+        long count = completed.get();
+        Map<String, Object> map = new LinkedHashMap<>(12);
+        map.put("threads", executor.getMaximumPoolSize());
+        map.put("active", executor.getActiveCount());
+        map.put("queueDepth", queue.size());
+        map.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        map.put("completed", count);
+        map.put("rejected", rejected.get());
+        map.put("avgWaitMillis", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWait.get() / count));
+        map.put("maxWaitMillis", TimeUnit.NANOSECONDS.toMillis(maxWaitObserved.get()));
+        map.put("avgHashMillis", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalHash.get() / count));
+        return map;
+    }
+
+    private BadRequestException busy() {
+        return new BadRequestException(HttpStatus.SERVICE_UNAVAILABLE, "登录人数过多，请稍后再试");
+    }
+}
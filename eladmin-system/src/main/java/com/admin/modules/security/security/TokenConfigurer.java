@@ -17,7 +17,8 @@ package com.admin.modules.security.security;
 
 import com.admin.config.SecurityProperties;
 import com.admin.system.security.service.AdminOnlineUserService;
-import com.admin.system.security.service.UserCacheClean;
+import com.admin.system.security.service.RevokedTokenFilter;
+import com.admin.system.security.service.UserActivityService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.config.annotation.SecurityConfigurerAdapter;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -33,11 +34,14 @@ public class TokenConfigurer extends SecurityConfigurerAdapter<DefaultSecurityFi
     private final TokenProvider tokenProvider;
     private final SecurityProperties properties;
     private final AdminOnlineUserService onlineUserService;
-    private final UserCacheClean userCacheClean;
+    private final RevokedTokenFilter revokedTokenFilter;
+    private final UserActivityService userActivityService;
+    private final AnonymousRouteMatcher anonymousRoutes;
 
     @Override
     public void configure(HttpSecurity http) {
-        TokenFilter customFilter = new TokenFilter(tokenProvider, properties, onlineUserService, userCacheClean);
+        TokenFilter customFilter = new TokenFilter(tokenProvider, properties, onlineUserService,
+                revokedTokenFilter, userActivityService, anonymousRoutes);
         http.addFilterBefore(customFilter, UsernamePasswordAuthenticationFilter.class);
     }
 }
@@ -19,11 +19,12 @@ import cn.hutool.core.util.StrUtil;
 import com.admin.config.SecurityProperties;
 import com.admin.modules.security.service.dto.OnlineUserDto;
 import com.admin.system.security.service.AdminOnlineUserService;
-import com.admin.system.security.service.UserCacheClean;
+import com.admin.system.security.service.RevokedTokenFilter;
+import com.admin.system.security.service.UserActivityService;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
@@ -34,7 +35,6 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
-import java.util.Objects;
 
 /**
  * @author /
@@ -46,37 +46,69 @@ public class TokenFilter extends GenericFilterBean {
     private final TokenProvider tokenProvider;
     private final SecurityProperties properties;
     private final AdminOnlineUserService onlineUserService;
-    private final UserCacheClean userCacheClean;
+    private final RevokedTokenFilter revokedTokenFilter;
+    private final UserActivityService userActivityService;
+    private final AnonymousRouteMatcher anonymousRoutes;
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
             throws IOException, ServletException {
         HttpServletRequest httpServletRequest = (HttpServletRequest) servletRequest;
+        // 匿名访问的接口及静态资源无需查询会话，也不续期
+        if (anonymousRoutes.matches(httpServletRequest)) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
         String token = resolveToken(httpServletRequest);
-        // 对于 Token 为空的不需要去查 Redis
+        // 对于 Token 为空的不需要去查 Redis，不透明令牌依赖服务端会话，不走无状态校验
+        if (StrUtil.isNotBlank(token) && properties.isStateless() && !tokenProvider.isOpaque(token)) {
+            VerifiedToken verifiedToken;
+            try {
+                verifiedToken = tokenProvider.verify(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                // 签名错误、格式错误等无效 Token 按未登录处理，由认证入口返回 401
+                log.debug("无效Token：{}", e.getMessage());
+                filterChain.doFilter(servletRequest, servletResponse);
+                return;
+            }
+            // 回查周期内确认过会话有效且未被吊销，无需访问 Redis
+            if (verifiedToken.isChecked(properties.getStatelessRecheck())
+                    && !revokedTokenFilter.mightBeRevoked(verifiedToken.getId())) {
+                SecurityContextHolder.getContext().setAuthentication(verifiedToken.getAuthentication());
+                recordActivity(httpServletRequest, verifiedToken);
+                filterChain.doFilter(servletRequest, servletResponse);
+                return;
+            }
+        }
         if (StrUtil.isNotBlank(token)) {
             OnlineUserDto onlineUserDto = null;
-            boolean cleanUserCache = false;
             try {
-                onlineUserDto = onlineUserService.getOne(properties.getOnlineKey() + token);
+                // 查询会话并按需续期，正常情况下命中本地缓存，最多一次 Redis 往返
+                // 会话已不存在时不清理用户信息缓存，由会话移除及过期清理时统一清理一次
+                onlineUserDto = onlineUserService.validate(token);
             } catch (ExpiredJwtException e) {
                 log.error(e.getMessage());
-                cleanUserCache = true;
-            } finally {
-                if (cleanUserCache || Objects.isNull(onlineUserDto)) {
-                    userCacheClean.cleanUserCache(String.valueOf(tokenProvider.getClaims(token).get(TokenProvider.AUTHORITIES_KEY)));
-                }
             }
             if (onlineUserDto != null && StringUtils.hasText(token)) {
-                Authentication authentication = tokenProvider.getAuthentication(token);
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-                // Token 续期
-                tokenProvider.checkRenewal(token);
+                VerifiedToken verifiedToken = tokenProvider.verify(token);
+                verifiedToken.checked();
+                SecurityContextHolder.getContext().setAuthentication(verifiedToken.getAuthentication());
+                recordActivity(httpServletRequest, verifiedToken);
             }
         }
         filterChain.doFilter(servletRequest, servletResponse);
     }
 
+    /**
+     * 记录活跃用户，只写入本地缓冲区
+     *
+     * @param request       /
+     * @param verifiedToken /
+     */
+    private void recordActivity(HttpServletRequest request, VerifiedToken verifiedToken) {
+        userActivityService.record(verifiedToken.getUserId(), request);
+    }
+
     /**
      * 初步检测Token
      *
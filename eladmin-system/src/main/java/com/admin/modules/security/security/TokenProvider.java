@@ -15,31 +15,40 @@
  */
 package com.admin.modules.security.security;
 
-import cn.hutool.core.date.DateField;
-import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.ObjectUtil;
+import com.admin.base.BaseUserDetails;
 import com.admin.config.SecurityProperties;
-import com.admin.utils.RedisUtils;
+import com.admin.modules.security.service.dto.OnlineUserDto;
+import com.admin.system.security.service.OnlineUserCache;
+import com.admin.system.security.service.UserDetailsCache;
+import com.admin.utils.PermissionSet;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
 import java.security.Key;
+import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -52,21 +61,54 @@ import java.util.stream.Collectors;
 public class TokenProvider implements InitializingBean {
 
     private final SecurityProperties properties;
-    private final RedisUtils redisUtils;
+    private final OnlineUserCache onlineUserCache;
+    private final UserDetailsCache userDetailsCache;
+    private final UserDetailsService userDetailsService;
     public static final String AUTHORITIES_KEY = "auth";
+    public static final String USER_ID_KEY = "uid";
+    /**
+     * 不透明令牌的随机字节数
+     */
+    private static final int OPAQUE_TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
     private Key key;
     private JwtParser jwtParser;
-    private JwtBuilder jwtBuilder;
+    /**
+     * 已验证的鉴权信息缓存，key 为 Token 的摘要，与在线用户本地缓存相互独立，会话被删除或用户信息失效时移除
+     */
+    private Cache<String, VerifiedToken> authenticationCache;
 
     @Override
     public void afterPropertiesSet() {
         byte[] keyBytes = Decoders.BASE64.decode(properties.getBase64Secret());
-        Key key = Keys.hmacShaKeyFor(keyBytes);
+        key = Keys.hmacShaKeyFor(keyBytes);
         jwtParser = Jwts.parserBuilder()
                 .setSigningKey(key)
                 .build();
-        jwtBuilder = Jwts.builder()
-                .signWith(key, SignatureAlgorithm.HS512);
+        if (properties.getVerifiedCacheSize() <= 0) {
+            if (properties.isStateless()) {
+                throw new IllegalStateException("开启无状态鉴权时 verified-cache-size 必须大于 0");
+            }
+            return;
+        }
+        // 过期时间不小于回查周期，否则回查周期内条目已过期，无状态鉴权不会跳过 Redis；
+        // 按写入时间过期，不透明令牌的权限最多在该时间后重新读取
+        long ttl = Math.max(properties.getOnlineCacheTtl(), properties.getStatelessRecheck());
+        authenticationCache = Caffeine.newBuilder()
+                .maximumSize(properties.getVerifiedCacheSize())
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .build();
+        onlineUserCache.addRemovalListener(onlineKey ->
+                authenticationCache.invalidate(digest(onlineKey.substring(properties.getOnlineKey().length()))));
+        // 角色、权限变更时失效该用户的鉴权信息，不透明令牌随之重新读取权限
+        userDetailsCache.addEvictListener(username -> {
+            if (username == null) {
+                authenticationCache.invalidateAll();
+            } else {
+                authenticationCache.asMap().values()
+                        .removeIf(verifiedToken -> username.equals(verifiedToken.getAuthentication().getName()));
+            }
+        });
     }
 
     /**
@@ -77,13 +119,22 @@ public class TokenProvider implements InitializingBean {
      * @return
      */
     public String createToken(Authentication authentication) {
+        if (SecurityProperties.OPAQUE.equals(properties.getTokenType())) {
+            return createOpaqueToken();
+        }
         /**
          * 获取权限列表
          */
         String authorities = authentication.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.joining(","));
+        // JwtBuilder 有状态，不能在并发登录之间共享，每次新建，解析好的密钥复用
+        JwtBuilder jwtBuilder = Jwts.builder();
+        if (authentication.getPrincipal() instanceof BaseUserDetails) {
+            jwtBuilder.claim(USER_ID_KEY, ((BaseUserDetails) authentication.getPrincipal()).getUserId());
+        }
         return jwtBuilder
+                .signWith(key, SignatureAlgorithm.HS512)
                 // 加入ID确保生成的 Token 都不一致
                 .setId(IdUtil.simpleUUID())
                 .claim(AUTHORITIES_KEY, authorities)
@@ -92,6 +143,25 @@ public class TokenProvider implements InitializingBean {
     }
 
 
+    /**
+     * 创建不透明令牌，只作为在线会话的引用，不含任何用户信息，不含 "." 以便与 JWT 区分
+     *
+     * @return /
+     */
+    private String createOpaqueToken() {
+        byte[] bytes = new byte[OPAQUE_TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @param token
+     * @return 是否为不透明令牌
+     */
+    public boolean isOpaque(String token) {
+        return token.indexOf('.') < 0;
+    }
+
     /**
      * 依据Token 获取鉴权信息
      *
@@ -99,6 +169,45 @@ public class TokenProvider implements InitializingBean {
      * @return
      */
     Authentication getAuthentication(String token) {
+        return verify(token).getAuthentication();
+    }
+
+    /**
+     * 获取 Token ID（jti）
+     *
+     * @param token
+     * @return
+     */
+    public String getId(String token) {
+        if (isOpaque(token)) {
+            return digest(token);
+        }
+        return verify(token).getId();
+    }
+
+    /**
+     * 依据Token 获取已验证的 Token 信息
+     *
+     * @param token
+     * @return
+     */
+    VerifiedToken verify(String token) {
+        if (authenticationCache == null) {
+            return parse(token);
+        }
+        return authenticationCache.get(digest(token), k -> parse(token));
+    }
+
+    /**
+     * 验证签名并解析鉴权信息，结果在缓存中共享，之后不再修改
+     *
+     * @param token
+     * @return
+     */
+    private VerifiedToken parse(String token) {
+        if (isOpaque(token)) {
+            return parseOpaque(token);
+        }
         Claims claims = getClaims(token);
         // fix bug: 当前用户如果没有任何权限时，在输入用户名后，刷新验证码会抛IllegalArgumentException
         Object authoritiesStr = claims.get(AUTHORITIES_KEY);
@@ -108,7 +217,42 @@ public class TokenProvider implements InitializingBean {
                                 .map(SimpleGrantedAuthority::new)
                                 .collect(Collectors.toList()) : Collections.emptyList();
         User principal = new User(claims.getSubject(), "******", authorities);
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        return new VerifiedToken(authentication(principal, token, authorities), claims.getId(),
+                claims.get(USER_ID_KEY, Long.class));
+    }
+
+    /**
+     * 不透明令牌从在线会话中取用户名，权限从用户信息缓存读取
+     *
+     * @param token
+     * @return
+     */
+    private VerifiedToken parseOpaque(String token) {
+        OnlineUserDto onlineUserDto = onlineUserCache.get(properties.getOnlineKey() + token);
+        if (onlineUserDto == null) {
+            throw new BadCredentialsException("Token 已失效");
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(onlineUserDto.getUserName());
+        Collection<? extends GrantedAuthority> authorities = userDetails.getAuthorities();
+        User principal = new User(userDetails.getUsername(), "******", authorities);
+        Long userId = userDetails instanceof BaseUserDetails ? ((BaseUserDetails) userDetails).getUserId() : null;
+        return new VerifiedToken(authentication(principal, token, authorities), digest(token), userId);
+    }
+
+    /**
+     * 权限位图在验证 Token 时生成一次，放在鉴权信息的 details 中，之后判断权限时直接读取
+     *
+     * @param principal
+     * @param token
+     * @param authorities
+     * @return
+     */
+    private Authentication authentication(User principal, String token,
+                                          Collection<? extends GrantedAuthority> authorities) {
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        authentication.setDetails(PermissionSet.of(authorities));
+        return authentication;
     }
 
     public Claims getClaims(String token) {
@@ -117,20 +261,8 @@ public class TokenProvider implements InitializingBean {
                 .getBody();
     }
 
-    /**
-     * @param token 需要检查的token
-     */
-    public void checkRenewal(String token) {
-        // 判断是否续期token,计算token的过期时间
-        long time = redisUtils.getExpire(properties.getOnlineKey() + token) * 1000;
-        Date expireDate = DateUtil.offset(new Date(), DateField.MILLISECOND, (int) time);
-        // 判断当前时间与过期时间的时间差
-        long differ = expireDate.getTime() - System.currentTimeMillis();
-        // 如果在续期检查的范围内，则续期
-        if (differ <= properties.getDetect()) {
-            long renew = time + properties.getRenew();
-            redisUtils.expire(properties.getOnlineKey() + token, renew, TimeUnit.MILLISECONDS);
-        }
+    private String digest(String token) {
+        return DigestUtils.sha256Hex(token);
     }
 
     public String getToken(HttpServletRequest request) {
@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.modules.security.security;
+
+import lombok.Getter;
+import org.springframework.security.core.Authentication;
+
+/**
+ * 已验证签名的 Token，记录最近一次在 Redis 确认会话有效的时间
+ *
+ * @author adyfang
+ */
+@Getter
+class VerifiedToken {
+
+    private final Authentication authentication;
+
+    /**
+     * Token ID（jti）
+     */
+    private final String id;
+
+    /**
+     * 用户ID，旧版本签发的 Token 中没有
+     */
+    private final Long userId;
+
+    private volatile long checkedAt;
+
+    VerifiedToken(Authentication authentication, String id, Long userId) {
+        this.authentication = authentication;
+        this.id = id;
+        this.userId = userId;
+    }
+
+    /**
+     * 记录已在 Redis 确认会话有效
+     */
+    void checked() {
+        checkedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * @param recheck 回查周期，毫秒
+     * @return 是否在回查周期内确认过会话有效
+     */
+    boolean isChecked(long recheck) {
+        return System.currentTimeMillis() - checkedAt < recheck;
+    }
+}
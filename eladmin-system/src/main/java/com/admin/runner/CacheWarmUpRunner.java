@@ -0,0 +1,126 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.runner;
+
+import com.admin.config.CacheWarmUpLoader;
+import com.admin.config.CacheWarmUpProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 启动时并行预热缓存，先于其它启动任务执行。
+ * 启动任务全部完成后服务才就绪，避免部署后的第一批请求同时从数据库重建缓存
+ *
+ * @author adyfang
+ * @see CacheWarmUpLoader
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CacheWarmUpRunner implements ApplicationRunner {
+
+    private final CacheWarmUpProperties properties;
+    private final ObjectProvider<CacheWarmUpLoader> loaders;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<CacheWarmUpLoader> selected = loaders.orderedStream()
+                .filter(loader -> properties.getLoaders().isEmpty() || properties.getLoaders().contains(loader.getName()))
+                .collect(Collectors.toList());
+        if (selected.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + properties.getTimeout();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = executor();
+        try {
+            // 生成任务本身可能查询数据库，同样并行执行
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (CacheWarmUpLoader loader : selected) {
+                futures.add(CompletableFuture.supplyAsync(() -> tasks(loader), executor)
+                        .thenCompose(tasks -> CompletableFuture.allOf(tasks.stream()
+                                .map(task -> CompletableFuture.runAsync(() -> execute(loader, task, completed, failed), executor))
+                                .toArray(CompletableFuture[]::new))));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            log.info("缓存预热完成：{}，任务 {} 个，失败 {} 个，耗时 {}ms", selected.stream().map(CacheWarmUpLoader::getName)
+                    .collect(Collectors.joining(",")), completed.get(), failed.get(), System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            log.warn("缓存预热超时，已完成 {} 个任务，剩余的不再等待", completed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("cache warm up is error", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Collection<Runnable> tasks(CacheWarmUpLoader loader) {
+        try {
+            Collection<Runnable> tasks = loader.tasks();
+            return tasks == null ? new ArrayList<>() : tasks;
+        } catch (Exception e) {
+            log.warn("缓存预热 {} 生成任务失败：{}", loader.getName(), e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void execute(CacheWarmUpLoader loader, Runnable task, AtomicInteger completed, AtomicInteger failed) {
+        try {
+            task.run();
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.warn("缓存预热 {} 失败：{}", loader.getName(), e.getMessage());
+        }
+    }
+
+    private ExecutorService executor() {
+        AtomicInteger index = new AtomicInteger();
+        int threads = Math.max(properties.getThreads(), 1);
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "cache-warm-up-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -15,6 +15,10 @@
  */
 package com.admin.system.controller;
 
+import com.admin.config.CacheMetrics;
+import com.admin.modules.security.security.BoundedLoginExecutor;
+import com.admin.system.security.service.UserActivityService;
+import com.admin.system.security.service.UserDetailsCache;
 import com.admin.system.service.IMonitorService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -37,6 +41,10 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminMonitorController {
 
     private final IMonitorService serverService;
+    private final UserDetailsCache userDetailsCache;
+    private final UserActivityService userActivityService;
+    private final BoundedLoginExecutor loginExecutor;
+    private final CacheMetrics cacheMetrics;
 
     @GetMapping
     @ApiOperation("查询服务监控")
@@ -44,4 +52,46 @@ public class AdminMonitorController {
     public ResponseEntity<Object> getServers() {
         return new ResponseEntity<>(serverService.getServers(), HttpStatus.OK);
     }
+
+    @GetMapping(value = "/active")
+    @ApiOperation("查询活跃用户统计")
+    @PreAuthorize("@el.check('monitor:list')")
+    public ResponseEntity<Object> getActiveStats() {
+        return new ResponseEntity<>(userActivityService.stats(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/cache/user")
+    @ApiOperation("查询用户信息缓存命中情况")
+    @PreAuthorize("@el.check('monitor:list')")
+    public ResponseEntity<Object> getUserCacheStats() {
+        return new ResponseEntity<>(userDetailsCache.stats(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/password")
+    @ApiOperation("查询密码校验线程池排队情况")
+    @PreAuthorize("@el.check('monitor:list')")
+    public ResponseEntity<Object> getPasswordStats() {
+        return new ResponseEntity<>(loginExecutor.stats(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/cache/delete")
+    @ApiOperation("查询缓存删除统计")
+    @PreAuthorize("@el.check('monitor:list')")
+    public ResponseEntity<Object> getCacheDeleteStats() {
+        return new ResponseEntity<>(cacheMetrics.getDelete().toMap(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/cache")
+    @ApiOperation("查询各缓存及 Redis 命令统计")
+    @PreAuthorize("@el.check('monitor:list')")
+    public ResponseEntity<Object> getCacheStats() {
+        return new ResponseEntity<>(cacheMetrics.stats(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    @ApiOperation("以 Prometheus 文本格式查询缓存及 Redis 命令统计")
+    @PreAuthorize("@el.check('monitor:list')")
+    public ResponseEntity<String> getMetrics() {
+        return new ResponseEntity<>(cacheMetrics.scrape(), HttpStatus.OK);
+    }
 }
@@ -15,12 +15,12 @@
  */
 package com.admin.system.dto;
 
+import com.admin.base.BaseUserDetails;
 import com.admin.modules.system.service.dto.UserDto;
+import com.admin.utils.PermissionSet;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.List;
 import java.util.Set;
@@ -31,9 +31,8 @@ import java.util.stream.Collectors;
  * @date 2020年4月27日
  */
 @Getter
-@AllArgsConstructor
 @SuppressWarnings("serial")
-public class AdminJwtUserDto implements UserDetails {
+public class AdminJwtUserDto implements BaseUserDetails {
 
     private final UserDto user;
 
@@ -42,6 +41,22 @@ public class AdminJwtUserDto implements UserDetails {
     @JsonIgnore
     private List<GrantedAuthority> authorities;
 
+    @JsonIgnore
+    private final transient PermissionSet permissions;
+
+    public AdminJwtUserDto(UserDto user, List<Long> dataScopes, List<GrantedAuthority> authorities) {
+        this.user = user;
+        this.dataScopes = dataScopes;
+        this.authorities = authorities;
+        this.permissions = PermissionSet.of(authorities);
+    }
+
+    @Override
+    @JsonIgnore
+    public Long getUserId() {
+        return user.getId();
+    }
+
     public Set<String> getRoles() {
         return authorities.stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet());
     }
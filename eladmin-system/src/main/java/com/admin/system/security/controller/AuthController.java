@@ -21,21 +21,21 @@ import com.admin.annotation.Log;
 import com.admin.annotation.rest.AnonymousDeleteMapping;
 import com.admin.annotation.rest.AnonymousGetMapping;
 import com.admin.annotation.rest.AnonymousPostMapping;
-import com.admin.config.LoginCodeEnum;
 import com.admin.config.LoginProperties;
 import com.admin.config.RsaProperties;
 import com.admin.config.SecurityProperties;
 import com.admin.exception.BadRequestException;
+import com.admin.modules.security.security.BoundedLoginExecutor;
 import com.admin.modules.security.security.TokenProvider;
 import com.admin.modules.security.service.dto.AuthUserDto;
 import com.admin.system.dto.AdminJwtUserDto;
+import com.admin.system.dto.CaptchaDto;
 import com.admin.system.security.service.AdminOnlineUserService;
 import com.admin.system.service.ICaptchaService;
 import com.admin.utils.RedisUtils;
 import com.admin.utils.RsaUtils;
 import com.admin.utils.SecurityUtils;
 import com.admin.utils.StringUtils;
-import com.wf.captcha.base.Captcha;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
@@ -75,6 +75,7 @@ public class AuthController {
     private final RsaProperties rsaProperties;
     private final LoginProperties loginProperties;
     private final ICaptchaService captchaService;
+    private final BoundedLoginExecutor loginExecutor;
 
     @SuppressWarnings({"serial"})
     @Log("用户登录")
@@ -98,7 +99,9 @@ public class AuthController {
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                 authUser.getUsername(), password);
 
-        Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
+        // 密码校验在有界线程池中执行，登录过多时快速失败
+        Authentication authentication = loginExecutor.execute(() ->
+                authenticationManagerBuilder.getObject().authenticate(authenticationToken));
         SecurityContextHolder.getContext().setAuthentication(authentication);
         // 生成令牌
         String token = tokenProvider.createToken(authentication);
@@ -130,20 +133,15 @@ public class AuthController {
     @ApiOperation("获取验证码")
     @AnonymousGetMapping(value = "/code")
     public ResponseEntity<Object> getCode() {
-        // 获取运算的结果
-        Captcha captcha = captchaService.getCaptcha();
+        // 取出预先渲染好的验证码
+        CaptchaDto captcha = captchaService.nextCaptcha();
         String uuid = properties.getCodeKey() + IdUtil.simpleUUID();
-        //当验证码类型为 arithmetic时且长度 >= 2 时，captcha.text()的结果有几率为浮点型
-        String captchaValue = captcha.text();
-        if (captcha.getCharType() - 1 == LoginCodeEnum.arithmetic.ordinal() && captchaValue.contains(".")) {
-            captchaValue = captchaValue.split("\\.")[0];
-        }
         // 保存
-        redisUtils.set(uuid, captchaValue, loginProperties.getLoginCode().getExpiration(), TimeUnit.MINUTES);
+        redisUtils.set(uuid, captcha.getText(), loginProperties.getLoginCode().getExpiration(), TimeUnit.MINUTES);
         // 验证码信息
         Map<String, Object> imgResult = new HashMap<String, Object>(2) {
             {
-                put("img", captcha.toBase64());
+                put("img", captcha.getImg());
                 put("uuid", uuid);
             }
         };
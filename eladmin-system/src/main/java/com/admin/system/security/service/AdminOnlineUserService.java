@@ -16,6 +16,7 @@
 package com.admin.system.security.service;
 
 import com.admin.config.SecurityProperties;
+import com.admin.modules.security.security.TokenProvider;
 import com.admin.modules.security.service.dto.OnlineUserDto;
 import com.admin.system.dto.AdminJwtUserDto;
 import com.admin.utils.*;
@@ -29,6 +30,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 
 /**
@@ -41,6 +43,10 @@ import java.util.*;
 public class AdminOnlineUserService {
     private final SecurityProperties properties;
     private final RedisUtils redisUtils;
+    private final OnlineUserCache onlineUserCache;
+    private final OnlineUserIndex onlineUserIndex;
+    private final RevokedTokenFilter revokedTokenFilter;
+    private final TokenProvider tokenProvider;
 
     /**
      * 保存在线用户信息
@@ -61,7 +67,11 @@ public class AdminOnlineUserService {
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
-        redisUtils.set(properties.getOnlineKey() + token, onlineUserDto, properties.getTokenValidityInSeconds() / 1000);
+        String key = properties.getOnlineKey() + token;
+        redisUtils.set(key, onlineUserDto, properties.getTokenValidityInSeconds() / 1000);
+        long expireAt = System.currentTimeMillis() + properties.getTokenValidityInSeconds();
+        onlineUserCache.put(key, onlineUserDto, expireAt);
+        onlineUserIndex.add(adminJwtUserDto.getUsername(), token, onlineUserDto, expireAt);
     }
 
     /**
@@ -72,9 +82,9 @@ public class AdminOnlineUserService {
      * @return
      */
     public Map<String, Object> getAll(String filter, Pageable pageable) {
-        List<OnlineUserDto> onlineUserDtos = getAll(filter);
-        return PageUtil.toPage(PageUtil.toPage(pageable.getPageNumber(), pageable.getPageSize(), onlineUserDtos),
-                onlineUserDtos.size());
+        long start = (long) pageable.getPageNumber() * pageable.getPageSize();
+        OnlineUserIndex.Page page = onlineUserIndex.page(filter, start, start + pageable.getPageSize() - 1);
+        return PageUtil.toPage(load(page.getTokens()), page.getTotal());
     }
 
     /**
@@ -84,21 +94,7 @@ public class AdminOnlineUserService {
      * @return
      */
     public List<OnlineUserDto> getAll(String filter) {
-        List<String> keys = redisUtils.scan(properties.getOnlineKey() + "*");
-        Collections.reverse(keys);
-        List<OnlineUserDto> onlineUserDtos = new ArrayList<>();
-        for (String key : keys) {
-            OnlineUserDto onlineUserDto = (OnlineUserDto) redisUtils.get(key);
-            if (StringUtils.isNotBlank(filter)) {
-                if (onlineUserDto.toString().contains(filter)) {
-                    onlineUserDtos.add(onlineUserDto);
-                }
-            } else {
-                onlineUserDtos.add(onlineUserDto);
-            }
-        }
-        onlineUserDtos.sort((o1, o2) -> o2.getLoginTime().compareTo(o1.getLoginTime()));
-        return onlineUserDtos;
+        return load(onlineUserIndex.page(filter, 0, -1).getTokens());
     }
 
     /**
@@ -107,8 +103,7 @@ public class AdminOnlineUserService {
      * @param key
      */
     public void kickOut(String key) {
-        key = properties.getOnlineKey() + key;
-        redisUtils.del(key);
+        remove(key);
     }
 
     /**
@@ -117,8 +112,7 @@ public class AdminOnlineUserService {
      * @param token
      */
     public void logout(String token) {
-        String key = properties.getOnlineKey() + token;
-        redisUtils.del(key);
+        remove(token);
     }
 
     /**
@@ -150,7 +144,17 @@ public class AdminOnlineUserService {
      * @return
      */
     public OnlineUserDto getOne(String key) {
-        return (OnlineUserDto) redisUtils.get(key);
+        return onlineUserCache.get(key);
+    }
+
+    /**
+     * 校验在线用户，剩余时间进入续期检查范围时续期
+     *
+     * @param token /
+     * @return 会话不存在时返回空
+     */
+    public OnlineUserDto validate(String token) {
+        return onlineUserCache.validateAndRenew(properties.getOnlineKey() + token);
     }
 
     /**
@@ -159,22 +163,9 @@ public class AdminOnlineUserService {
      * @param userName 用户名
      */
     public void checkLoginOnUser(String userName, String igoreToken) {
-        List<OnlineUserDto> onlineUserDtos = getAll(userName);
-        if (onlineUserDtos == null || onlineUserDtos.isEmpty()) {
-            return;
-        }
-        for (OnlineUserDto onlineUserDto : onlineUserDtos) {
-            if (onlineUserDto.getUserName().equals(userName)) {
-                try {
-                    String token = EncryptUtils.desDecrypt(onlineUserDto.getKey());
-                    if (StringUtils.isNotBlank(igoreToken) && !igoreToken.equals(token)) {
-                        this.kickOut(token);
-                    } else if (StringUtils.isBlank(igoreToken)) {
-                        this.kickOut(token);
-                    }
-                } catch (Exception e) {
-                    log.error("checkUser is error", e);
-                }
+        for (String token : onlineUserIndex.tokens(userName)) {
+            if (StringUtils.isBlank(igoreToken) || !igoreToken.equals(token)) {
+                this.kickOut(token);
             }
         }
     }
@@ -185,12 +176,48 @@ public class AdminOnlineUserService {
      */
     @Async
     public void kickOutForUsername(String username) {
-        List<OnlineUserDto> onlineUsers = getAll(username);
-        for (OnlineUserDto onlineUser : onlineUsers) {
-            if (onlineUser.getUserName().equals(username)) {
-                kickOut(onlineUser.getKey());
+        for (String token : onlineUserIndex.tokens(username)) {
+            kickOut(token);
+        }
+    }
+
+    /**
+     * 按 token 顺序读取在线用户，跳过刚刚过期的会话
+     *
+     * @param tokens /
+     * @return /
+     */
+    private List<OnlineUserDto> load(List<String> tokens) {
+        List<String> keys = tokens.stream().map(token -> properties.getOnlineKey() + token).collect(Collectors.toList());
+        List<OnlineUserDto> onlineUserDtos = new ArrayList<>(tokens.size());
+        for (Object value : redisUtils.getAll(keys)) {
+            if (value != null) {
+                onlineUserDtos.add((OnlineUserDto) value);
             }
         }
+        return onlineUserDtos;
+    }
+
+    /**
+     * 删除会话，失效各节点本地缓存并从用户会话索引中移除，无状态鉴权时同时吊销 Token
+     *
+     * @param token /
+     */
+    private void remove(String token) {
+        if (properties.isStateless()) {
+            try {
+                revokedTokenFilter.revoke(tokenProvider.getId(token));
+            } catch (Exception e) {
+                log.error("revoke token is error", e);
+            }
+        }
+        String key = properties.getOnlineKey() + token;
+        OnlineUserDto onlineUserDto = onlineUserCache.get(key);
+        redisUtils.del(key);
+        onlineUserCache.evict(key);
+        if (onlineUserDto != null) {
+            onlineUserIndex.remove(onlineUserDto.getUserName(), token);
+        }
     }
 
 }
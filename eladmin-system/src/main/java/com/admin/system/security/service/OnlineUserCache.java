@@ -0,0 +1,252 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.system.security.service;
+
+import com.admin.config.SecurityProperties;
+import com.admin.modules.security.service.dto.OnlineUserDto;
+import com.admin.utils.RedisUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 在线用户本地缓存，位于 Redis 之前，避免每次请求都去 Redis 查询会话。
+ * 本地条目的有效期不会超过 Redis 中会话的剩余时间，
+ * 会话被删除时通过 Redis 发布订阅通知所有节点失效本地条目
+ *
+ * @author adyfang
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OnlineUserCache implements MessageListener, InitializingBean {
+
+    /**
+     * 会话失效通知频道
+     */
+    public static final String EVICT_CHANNEL = "online-token-evict";
+
+    /**
+     * 查询会话并在剩余时间进入续期检查范围时续期，一次网络往返完成，
+     * 返回 {会话, 剩余毫秒数, 是否续期}，会话不存在时返回空
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> VALIDATE_AND_RENEW_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('get', KEYS[1])" +
+                    "\nif not value then" +
+                    "\nreturn nil" +
+                    "\nend" +
+                    "\nlocal ttl = redis.call('pttl', KEYS[1])" +
+                    "\nlocal renewed = 0" +
+                    "\nif ttl >= 0 and ttl <= tonumber(ARGV[1]) then" +
+                    "\nttl = ttl + tonumber(ARGV[2])" +
+                    "\nredis.call('pexpire', KEYS[1], ttl)" +
+                    "\nrenewed = 1" +
+                    "\nend" +
+                    "\nreturn {value, ttl, renewed}", List.class);
+
+    private final SecurityProperties properties;
+    private final RedisUtils redisUtils;
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final List<Consumer<String>> removalListeners = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<String, Long>> renewalListeners = new CopyOnWriteArrayList<>();
+    private Cache<String, Entry> cache;
+
+    @Override
+    public void afterPropertiesSet() {
+        // 依附于会话的其它本地缓存同样需要失效通知，关闭本地缓存时也订阅
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICT_CHANNEL));
+        if (properties.getOnlineCacheSize() <= 0) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getOnlineCacheSize())
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                        return remaining(entry);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                        return remaining(entry);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 注册会话被删除（退出、踢出）时的回调，用于清理依附于会话的其它本地缓存，
+     * 本地条目过期或容量淘汰不触发
+     *
+     * @param listener 参数为在线用户 key
+     */
+    public void addRemovalListener(Consumer<String> listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * 注册会话续期后的回调，用于同步依赖会话过期时间的索引
+     *
+     * @param listener 参数为在线用户 key 及新的过期时间戳
+     */
+    public void addRenewalListener(BiConsumer<String, Long> listener) {
+        renewalListeners.add(listener);
+    }
+
+    /**
+     * 查询在线用户，本地不存在时从 Redis 加载
+     *
+     * @param key 在线用户 key
+     * @return /
+     */
+    public OnlineUserDto get(String key) {
+        if (cache == null) {
+            Entry entry = fetch(key, -1);
+            return entry == null ? null : entry.getOnlineUser();
+        }
+        Entry entry = cache.get(key, k -> fetch(k, -1));
+        return entry == null ? null : entry.getOnlineUser();
+    }
+
+    /**
+     * 校验在线用户并按需续期。本地记录的过期时间不在续期检查范围内时不访问 Redis，
+     * 否则通过一次脚本调用完成查询、检查剩余时间与续期
+     *
+     * @param key 在线用户 key
+     * @return 会话不存在时返回空
+     */
+    public OnlineUserDto validateAndRenew(String key) {
+        if (cache == null) {
+            Entry entry = fetch(key, properties.getDetect());
+            return entry == null ? null : entry.getOnlineUser();
+        }
+        Entry entry = cache.get(key, k -> fetch(k, properties.getDetect()));
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getExpireAt() - System.currentTimeMillis() > properties.getDetect()) {
+            return entry.getOnlineUser();
+        }
+        Entry renewed = fetch(key, properties.getDetect());
+        if (renewed == null) {
+            invalidate(key);
+            return null;
+        }
+        cache.asMap().computeIfPresent(key, (k, old) -> renewed);
+        return renewed.getOnlineUser();
+    }
+
+    /**
+     * 登录后直接放入本地缓存
+     *
+     * @param key        在线用户 key
+     * @param onlineUser /
+     * @param expireAt   过期时间戳
+     */
+    public void put(String key, OnlineUserDto onlineUser, long expireAt) {
+        if (cache != null && onlineUser != null) {
+            cache.put(key, new Entry(onlineUser, expireAt));
+        }
+    }
+
+    /**
+     * 失效本地条目，并通知其它节点
+     *
+     * @param key 在线用户 key
+     */
+    public void evict(String key) {
+        invalidate(key);
+        redisUtils.publish(EVICT_CHANNEL, key);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object key = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (key != null) {
+            log.debug("失效在线用户本地缓存：{}", key);
+            invalidate(key.toString());
+        }
+    }
+
+    private void invalidate(String key) {
+        if (cache != null) {
+            cache.invalidate(key);
+        }
+        removalListeners.forEach(listener -> listener.accept(key));
+    }
+
+    /**
+     * @param key    在线用户 key
+     * @param detect 续期检查范围，小于 0 时只查询不续期
+     * @return /
+     */
+    @SuppressWarnings("rawtypes")
+    private Entry fetch(String key, long detect) {
+        List result = redisUtils.execute(VALIDATE_AND_RENEW_SCRIPT, Collections.singletonList(key),
+                detect, properties.getRenew());
+        if (result == null || result.size() < 3) {
+            return null;
+        }
+        // 剩余时间为 -1 代表永久有效
+        long ttl = ((Number) result.get(1)).longValue();
+        long expireAt = ttl < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + ttl;
+        if (((Number) result.get(2)).intValue() == 1) {
+            renewalListeners.forEach(listener -> listener.accept(key, expireAt));
+        }
+        return new Entry((OnlineUserDto) result.get(0), expireAt);
+    }
+
+    private long remaining(Entry entry) {
+        long millis = Math.min(properties.getOnlineCacheTtl(), entry.getExpireAt() - System.currentTimeMillis());
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(millis, 0));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+
+        private final OnlineUserDto onlineUser;
+
+        private final long expireAt;
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.system.security.service;
+
+import cn.hutool.core.util.IdUtil;
+import com.admin.config.SecurityProperties;
+import com.admin.modules.security.service.dto.OnlineUserDto;
+import com.admin.utils.RedisUtils;
+import com.admin.utils.StringUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在线用户索引，查询在线用户时不再扫描全部会话：
+ * <ul>
+ *     <li>用户名到 token 的 Set，按用户查询、踢出会话时只访问该用户自己的会话</li>
+ *     <li>按登录时间排序的 ZSet，在线用户列表按页查询，总数直接取 ZSet 长度</li>
+ *     <li>按用户名、部门、IP 的每个取值分别建立的按登录时间排序的 ZSet，以及每个字段的取值 ZSet（分值为引用数），
+ *     过滤时在取值中按子串匹配，只合并匹配取值的索引</li>
+ *     <li>token 到用户名及各字段取值的 Hash，移除会话时据此清理过滤索引</li>
+ *     <li>按过期时间排序的 ZSet，会话自然过期时不会通知索引，由定时任务据此清理列表索引</li>
+ * </ul>
+ * 列表索引都带有同一个 hash tag，由脚本以纯字符串读写，每次登录、移除、清理都在一个脚本中完成，
+ * 中途失败不会留下残缺的索引；代价是集群模式下全部列表索引位于同一个槽位。
+ * 用户 Set 不设过期时间，与列表索引不在同一槽位，单独写入，在登录及查询时顺带清理已失效的 token。
+ * 会话被移除或过期清理后，用户已没有有效会话时清理一次用户信息缓存，不在请求路径上反复清理
+ *
+ * @author adyfang
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OnlineUserIndex implements InitializingBean, DisposableBean {
+
+    /**
+     * 参数为 {前缀, 字段数, 字段...}，之后为各脚本自己的参数
+     */
+    private static final String FIELD_ARGS =
+            "local prefix = ARGV[1]" +
+                    "\nlocal count = tonumber(ARGV[2])" +
+                    "\nlocal rest = count + 3";
+
+    /**
+     * 从列表及过滤索引中移除会话，返回 {处理的 token 数, 用户名...}，重复移除不影响结果
+     */
+    private static final String REMOVE_FUNCTION =
+            "\nlocal function remove(tokens)" +
+                    "\nlocal result = {#tokens}" +
+                    "\nlocal seen = {}" +
+                    "\nfor _, token in ipairs(tokens) do" +
+                    "\nlocal value = redis.call('hget', KEYS[3], token)" +
+                    "\nif value then" +
+                    "\nlocal parts = {}" +
+                    "\nfor part in string.gmatch(value .. '\\n', '([^\\n]*)\\n') do" +
+                    "\nparts[#parts + 1] = part" +
+                    "\nend" +
+                    "\nif #parts == count + 1 then" +
+                    "\nif not seen[parts[1]] then" +
+                    "\nseen[parts[1]] = true" +
+                    "\nresult[#result + 1] = parts[1]" +
+                    "\nend" +
+                    "\nfor i = 1, count do" +
+                    "\nlocal field, v = ARGV[2 + i], parts[i + 1]" +
+                    "\nif v ~= '' and redis.call('zrem', prefix .. field .. ':' .. v, token) == 1 then" +
+                    "\nlocal values = prefix .. 'values:' .. field" +
+                    "\nif tonumber(redis.call('zincrby', values, -1, v)) <= 0 then" +
+                    "\nredis.call('zrem', values, v)" +
+                    "\nend" +
+                    "\nend" +
+                    "\nend" +
+                    "\nend" +
+                    "\nredis.call('hdel', KEYS[3], token)" +
+                    "\nend" +
+                    "\nredis.call('zrem', KEYS[1], token)" +
+                    "\nredis.call('zrem', KEYS[2], token)" +
+                    "\nend" +
+                    "\nreturn result" +
+                    "\nend";
+
+    /**
+     * 记录会话，KEYS 为 {time, expire, fields}，参数之后为 {token, 登录时间, 过期时间, 用户名, 各字段取值...}
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(FIELD_ARGS +
+            "\nlocal token, loginTime = ARGV[rest], ARGV[rest + 1]" +
+            "\nlocal values = {ARGV[rest + 3]}" +
+            "\nfor i = 1, count do" +
+            "\nlocal field, v = ARGV[2 + i], ARGV[rest + 3 + i]" +
+            "\nvalues[#values + 1] = v" +
+            "\nif v ~= '' and redis.call('zadd', prefix .. field .. ':' .. v, loginTime, token) == 1 then" +
+            "\nredis.call('zincrby', prefix .. 'values:' .. field, 1, v)" +
+            "\nend" +
+            "\nend" +
+            "\nredis.call('hset', KEYS[3], token, table.concat(values, '\\n'))" +
+            "\nredis.call('zadd', KEYS[2], ARGV[rest + 2], token)" +
+            "\nredis.call('zadd', KEYS[1], loginTime, token)" +
+            "\nreturn 1", Long.class);
+
+    /**
+     * 移除会话，KEYS 为 {time, expire, fields}，参数之后为 token
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REMOVE_SCRIPT = new DefaultRedisScript<>(FIELD_ARGS + REMOVE_FUNCTION +
+            "\nreturn remove({unpack(ARGV, rest)})", List.class);
+
+    /**
+     * 清理一批已过期的会话，KEYS 为 {time, expire, fields}，参数之后为 {当前时间, 批量}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PRUNE_SCRIPT = new DefaultRedisScript<>(FIELD_ARGS + REMOVE_FUNCTION +
+            "\nreturn remove(redis.call('zrangebyscore', KEYS[2], 0, ARGV[rest], 'limit', 0, ARGV[rest + 1]))",
+            List.class);
+
+    /**
+     * 会话续期后同步过期时间，已移除的会话不再写入，KEYS 为 {time, expire}，参数为 {token, 过期时间}
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('zscore', KEYS[1], ARGV[1]) then" +
+                    "\nreturn redis.call('zadd', KEYS[2], ARGV[2], ARGV[1])" +
+                    "\nend" +
+                    "\nreturn 0", Long.class);
+
+    /**
+     * 按页查询，返回 {总数, 当前页 token...}。KEYS 为 {time, 合并用的临时 key}，
+     * 参数之后为 {过滤条件, 开始位置, 结束位置}，过滤条件为空时直接读取 time。
+     * 过滤时在每个字段的取值中按子串匹配，只有一个取值匹配时直接读取该索引，否则分批合并到临时 key 后读取
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE_SCRIPT = new DefaultRedisScript<>(FIELD_ARGS +
+            "\nlocal filter = ARGV[rest]" +
+            "\nlocal matched = {}" +
+            "\nif filter == '' then" +
+            "\nmatched[1] = KEYS[1]" +
+            "\nelse" +
+            "\nfor i = 1, count do" +
+            "\nlocal field = ARGV[2 + i]" +
+            "\nfor _, v in ipairs(redis.call('zrange', prefix .. 'values:' .. field, 0, -1)) do" +
+            "\nif string.find(v, filter, 1, true) then" +
+            "\nmatched[#matched + 1] = prefix .. field .. ':' .. v" +
+            "\nend" +
+            "\nend" +
+            "\nend" +
+            "\nend" +
+            "\nif #matched == 0 then" +
+            "\nreturn {0}" +
+            "\nend" +
+            "\nlocal source = matched[1]" +
+            "\nif #matched > 1 then" +
+            "\nsource = KEYS[2]" +
+            "\nfor i = 1, #matched, 500 do" +
+            "\nlocal args = {'zunionstore', source, 0}" +
+            "\nif i > 1 then" +
+            "\nargs[#args + 1] = source" +
+            "\nend" +
+            "\nfor j = i, math.min(i + 499, #matched) do" +
+            "\nargs[#args + 1] = matched[j]" +
+            "\nend" +
+            "\nargs[3] = #args - 3" +
+            "\nargs[#args + 1] = 'aggregate'" +
+            "\nargs[#args + 1] = 'max'" +
+            "\nredis.call(unpack(args))" +
+            "\nend" +
+            "\nend" +
+            "\nlocal result = {redis.call('zcard', source)}" +
+            "\nfor _, member in ipairs(redis.call('zrevrange', source, ARGV[rest + 1], ARGV[rest + 2])) do" +
+            "\nresult[#result + 1] = member" +
+            "\nend" +
+            "\nif #matched > 1 then" +
+            "\nredis.call('del', source)" +
+            "\nend" +
+            "\nreturn result", List.class);
+
+    /**
+     * 建立过滤索引的字段，与 Hash 中保存的顺序一致
+     */
+    private static final List<String> INDEXED_FIELDS = Arrays.asList("username", "dept", "ip");
+    private static final String FIELD_SEPARATOR = "\n";
+
+    /**
+     * 清理过期会话的间隔及每批数量，每个间隔只有一个节点清理
+     */
+    private static final long PRUNE_INTERVAL = 60000;
+    private static final int PRUNE_BATCH = 500;
+
+    private final SecurityProperties properties;
+    private final RedisUtils redisUtils;
+    private final OnlineUserCache onlineUserCache;
+    private final UserCacheClean userCacheClean;
+    private ScheduledExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        // 会话续期后同步过期时间，避免被当作已过期清理
+        onlineUserCache.addRenewalListener((key, expireAt) ->
+                redisUtils.executeString(RENEW_SCRIPT, Arrays.asList(listKey("time"), listKey("expire")),
+                        key.substring(properties.getOnlineKey().length()), expireAt));
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "online-index-prune");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::prune, PRUNE_INTERVAL, PRUNE_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 记录用户的新会话，并清理该用户已失效的会话
+     *
+     * @param username      用户名
+     * @param token         /
+     * @param onlineUserDto 在线用户
+     * @param expireAt      过期时间戳
+     */
+    public void add(String username, String token, OnlineUserDto onlineUserDto, long expireAt) {
+        redisUtils.sSet(userKey(username), token);
+        if (onlineUserDto != null) {
+            List<String> values = Arrays.asList(onlineUserDto.getUserName(), onlineUserDto.getDept(), onlineUserDto.getIp());
+            List<Object> args = fieldArgs();
+            args.add(token);
+            args.add(onlineUserDto.getLoginTime().getTime());
+            args.add(expireAt);
+            args.add(strip(onlineUserDto.getUserName()));
+            values.forEach(value -> args.add(value == null ? "" : normalize(value)));
+            redisUtils.executeString(ADD_SCRIPT, listKeys(), args.toArray());
+        }
+        tokens(username);
+    }
+
+    /**
+     * 移除用户的会话
+     *
+     * @param username 用户名
+     * @param token    /
+     */
+    public void remove(String username, String token) {
+        redisUtils.setRemove(userKey(username), token);
+        List<Object> args = fieldArgs();
+        args.add(token);
+        redisUtils.executeString(REMOVE_SCRIPT, listKeys(), args.toArray());
+        release(username);
+    }
+
+    /**
+     * 查询用户当前有效的全部 token，顺带移除已失效的
+     *
+     * @param username 用户名
+     * @return /
+     */
+    public List<String> tokens(String username) {
+        Set<Object> members = redisUtils.sGet(userKey(username));
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> candidates = new ArrayList<>(members.size());
+        List<String> keys = new ArrayList<>(members.size());
+        for (Object member : members) {
+            candidates.add(member.toString());
+            keys.add(properties.getOnlineKey() + member);
+        }
+        List<Boolean> exists = redisUtils.hasKeys(keys);
+        List<String> tokens = new ArrayList<>(members.size());
+        List<Object> expired = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (i < exists.size() && exists.get(i)) {
+                tokens.add(candidates.get(i));
+            } else {
+                expired.add(candidates.get(i));
+            }
+        }
+        if (!expired.isEmpty()) {
+            redisUtils.setRemove(userKey(username), expired.toArray());
+        }
+        return tokens;
+    }
+
+    /**
+     * 按登录时间倒序分页查询 token，每页只读取一次范围
+     *
+     * @param filter 过滤条件，按子串匹配用户名、部门或 IP，不区分大小写
+     * @param start  开始位置
+     * @param end    结束位置，-1 代表全部
+     * @return /
+     */
+    @SuppressWarnings("rawtypes")
+    public Page page(String filter, long start, long end) {
+        List<Object> args = fieldArgs();
+        args.add(StringUtils.isBlank(filter) ? "" : normalize(filter));
+        args.add(start);
+        args.add(end);
+        // 多个取值同时匹配时合并用的临时 key，与索引位于同一槽位
+        List<Object> keys = Arrays.asList(listKey("time"), listKey("filter:" + IdUtil.simpleUUID()));
+        List result = redisUtils.executeString(PAGE_SCRIPT, keys, args.toArray());
+        if (result == null || result.isEmpty()) {
+            return new Page(Collections.emptyList(), 0);
+        }
+        List<String> tokens = new ArrayList<>(result.size() - 1);
+        for (int i = 1; i < result.size(); i++) {
+            tokens.add(result.get(i).toString());
+        }
+        return new Page(tokens, ((Number) result.get(0)).longValue());
+    }
+
+    /**
+     * 最近登录的会话所属的用户，按登录时间倒序去重
+     *
+     * @param limit 读取的会话数量
+     * @return 用户名
+     */
+    public List<String> recentUsers(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = page(null, 0, limit - 1).getTokens();
+        List<String> keys = new ArrayList<>(tokens.size());
+        tokens.forEach(token -> keys.add(properties.getOnlineKey() + token));
+        Set<String> usernames = new LinkedHashSet<>();
+        for (Object value : redisUtils.getAll(keys)) {
+            if (value instanceof OnlineUserDto && ((OnlineUserDto) value).getUserName() != null) {
+                usernames.add(((OnlineUserDto) value).getUserName());
+            }
+        }
+        return new ArrayList<>(usernames);
+    }
+
+    /**
+     * 定时清理列表索引中已过期的会话，分批处理。
+     * 各节点都会定时执行，拿到本周期的锁的节点才清理，清理本身可重复执行
+     */
+    @SuppressWarnings("rawtypes")
+    void prune() {
+        try {
+            if (!redisUtils.setIfAbsent(listKey("prune-lock"), System.currentTimeMillis(),
+                    PRUNE_INTERVAL, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List result;
+            do {
+                List<Object> args = fieldArgs();
+                args.add(now);
+                args.add(PRUNE_BATCH);
+                result = redisUtils.executeString(PRUNE_SCRIPT, listKeys(), args.toArray());
+                if (result == null || result.isEmpty()) {
+                    return;
+                }
+                for (int i = 1; i < result.size(); i++) {
+                    release(result.get(i).toString());
+                }
+            } while (((Number) result.get(0)).intValue() == PRUNE_BATCH);
+        } catch (Exception e) {
+            log.error("prune online user index is error", e);
+        }
+    }
+
+    /**
+     * 用户已没有有效会话时清理其用户信息缓存
+     *
+     * @param username 用户名
+     */
+    private void release(String username) {
+        if (StringUtils.isNotEmpty(username) && tokens(username).isEmpty()) {
+            userCacheClean.cleanUserCache(username);
+        }
+    }
+
+    /**
+     * @return 脚本的公共参数 {前缀, 字段数, 字段...}
+     */
+    private List<Object> fieldArgs() {
+        List<Object> args = new ArrayList<>(INDEXED_FIELDS.size() + 8);
+        args.add(listKey(""));
+        args.add(INDEXED_FIELDS.size());
+        args.addAll(INDEXED_FIELDS);
+        return args;
+    }
+
+    private List<Object> listKeys() {
+        return Arrays.asList(listKey("time"), listKey("expire"), listKey("fields"));
+    }
+
+    /**
+     * Hash 中保存原始用户名，去掉分隔符
+     */
+    private static String strip(String value) {
+        return value == null ? "" : value.replace(FIELD_SEPARATOR, " ");
+    }
+
+    /**
+     * 索引中的取值，不区分大小写
+     */
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT).replace(FIELD_SEPARATOR, " ");
+    }
+
+    private String userKey(String username) {
+        return properties.getOnlineIndexKey() + username;
+    }
+
+    private String listKey(String name) {
+        return properties.getOnlineListKey() + name;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Page {
+
+        private final List<String> tokens;
+
+        private final long total;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.system.security.service;
+
+import com.admin.config.SecurityProperties;
+import com.admin.utils.ConcurrentBloomFilter;
+import com.admin.utils.RedisUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已吊销 Token 过滤器，仅在无状态鉴权时启用。
+ * 每个节点在本地用布隆过滤器记录被踢出、退出的 Token ID（jti），新吊销的 ID 通过 Redis 发布订阅实时下发，
+ * 同时定期从 Redis 的吊销记录中补齐，漏收通知时吊销最迟在一个同步周期后生效。
+ * <p>
+ * Token 最迟在一个回查周期后会回查 Redis，因此只需记住最近一个回查周期内吊销的 ID：
+ * 过滤器分为当前、上一代两份，每个回查周期轮换一次，内存不会随时间增长
+ *
+ * @author adyfang
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevokedTokenFilter implements MessageListener, InitializingBean, DisposableBean {
+
+    /**
+     * Token 吊销通知频道
+     */
+    public static final String REVOKE_CHANNEL = "token-revoke";
+
+    /**
+     * 误判只会多查一次 Redis
+     */
+    private static final double FPP = 0.001;
+
+    private final SecurityProperties properties;
+    private final RedisUtils redisUtils;
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private volatile ConcurrentBloomFilter current;
+    private volatile ConcurrentBloomFilter previous;
+    private long rotatedAt;
+    private long syncedAt;
+    private ScheduledExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isStateless()) {
+            return;
+        }
+        current = newFilter();
+        previous = newFilter();
+        rotatedAt = System.currentTimeMillis();
+        // 启动时补齐最近一个回查周期内吊销的记录
+        syncedAt = rotatedAt - properties.getStatelessRecheck();
+        sync();
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOKE_CHANNEL));
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "token-revoked-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::sync, properties.getRevokedSync(), properties.getRevokedSync(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 吊销 Token，通知所有节点
+     *
+     * @param id Token ID
+     */
+    public void revoke(String id) {
+        if (!properties.isStateless() || id == null) {
+            return;
+        }
+        current.put(id);
+        redisUtils.zAdd(properties.getRevokedKey(), id, System.currentTimeMillis());
+        redisUtils.publish(REVOKE_CHANNEL, id);
+    }
+
+    /**
+     * @param id Token ID
+     * @return false 代表一定没有被吊销
+     */
+    public boolean mightBeRevoked(String id) {
+        return current.mightContain(id) || previous.mightContain(id);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object id = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (id != null) {
+            current.put(id.toString());
+        }
+    }
+
+    /**
+     * 轮换过滤器，并从 Redis 补齐上次同步以来的吊销记录
+     */
+    private void sync() {
+        try {
+            long now = System.currentTimeMillis();
+            long recheck = properties.getStatelessRecheck();
+            if (now - rotatedAt >= recheck) {
+                previous = current;
+                current = newFilter();
+                rotatedAt = now;
+            }
+            // 多取一个同步周期，容忍各节点之间的时钟偏差
+            Set<Object> revoked = redisUtils.zRangeByScore(properties.getRevokedKey(),
+                    syncedAt - properties.getRevokedSync(), now);
+            if (revoked != null) {
+                revoked.forEach(id -> current.put(id.toString()));
+            }
+            syncedAt = now;
+            redisUtils.zRemoveRangeByScore(properties.getRevokedKey(), 0, now - 2 * recheck);
+        } catch (Exception e) {
+            log.error("同步已吊销 Token 失败", e);
+        }
+    }
+
+    private ConcurrentBloomFilter newFilter() {
+        return new ConcurrentBloomFilter(properties.getRevokedCapacity(), FPP);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.system.security.service;
+
+import cn.hutool.core.util.IdUtil;
+import com.admin.utils.RedisUtils;
+import com.admin.utils.StringUtils;
+import eu.bitwalker.useragentutils.UserAgent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 活跃用户统计，不依赖在线用户会话：
+ * <ul>
+ *     <li>每天一个位图，以用户ID为偏移量，统计日活、周活、月活</li>
+ *     <li>每天一个 HyperLogLog 记录不重复的 IP 与浏览器</li>
+ *     <li>每小时一个 HyperLogLog 记录活跃用户，近似每小时的在线人数</li>
+ * </ul>
+ * 日期与小时均按系统时区的本地时间划分，时区偏移不是整小时时也与本地整点对齐
+ * 请求线程只写入本地去重集合，由后台线程定期通过管道批量写入 Redis
+ *
+ * @author adyfang
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserActivityService implements InitializingBean, DisposableBean {
+
+    /**
+     * 日活位图使用同一个 hash tag，集群模式下也能按位或统计周活、月活
+     */
+    private static final String DAY_KEY = "activity:{day}:";
+    private static final String HOUR_KEY = "activity:hour:";
+    private static final String IP_KEY = "activity:ip:";
+    private static final String BROWSER_KEY = "activity:browser:";
+    private static final long FLUSH_INTERVAL = 5000;
+    private static final long DAY_KEY_TTL = TimeUnit.DAYS.toSeconds(32);
+    private static final long HOUR_KEY_TTL = TimeUnit.DAYS.toSeconds(2);
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private final RedisUtils redisUtils;
+    private final AtomicReference<Buffer> buffer = new AtomicReference<>(new Buffer(currentHour()));
+    private ScheduledExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-activity-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        flush();
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param userId  用户ID，为空时只记录 IP 与浏览器
+     * @param request /
+     */
+    public void record(Long userId, HttpServletRequest request) {
+        String ip = StringUtils.getIp(request);
+        String userAgent = request.getHeader("User-Agent");
+        Buffer current = buffer.get();
+        if (userId != null) {
+            current.users.add(userId);
+        }
+        if (ip != null) {
+            current.ips.add(ip);
+        }
+        if (userAgent != null) {
+            current.userAgents.add(userAgent);
+        }
+    }
+
+    /**
+     * 查询活跃用户统计
+     *
+     * @return /
+     */
+    public Map<String, Object> stats() {
+        LocalDate today = LocalDate.now();
+        Map<String, Object> map = new LinkedHashMap<>(8);
+        map.put("dau", redisUtils.bitCount(DAY_KEY + DAY.format(today)));
+        map.put("wau", redisUtils.bitCountOr(DAY_KEY + IdUtil.simpleUUID(), dayKeys(today, 7)));
+        map.put("mau", redisUtils.bitCountOr(DAY_KEY + IdUtil.simpleUUID(), dayKeys(today, 30)));
+        map.put("ip", redisUtils.pfCount(IP_KEY + DAY.format(today)));
+        map.put("browser", redisUtils.pfCount(BROWSER_KEY + DAY.format(today)));
+        // 24 个小时的统计一次批量查询
+        List<String> hourKeys = new ArrayList<>(24);
+        for (int i = 0; i < 24; i++) {
+            hourKeys.add(HOUR_KEY + HOUR.format(today.atTime(i, 0)));
+        }
+        map.put("hours", redisUtils.pfCountAll(hourKeys));
+        return map;
+    }
+
+    /**
+     * 换出本地缓冲区，批量写入 Redis
+     */
+    private void flush() {
+        Buffer flushing = buffer.getAndSet(new Buffer(currentHour()));
+        if (flushing.isEmpty()) {
+            return;
+        }
+        try {
+            ZonedDateTime time = flushing.hour;
+            byte[] dayKey = redisUtils.rawKey(DAY_KEY + DAY.format(time));
+            byte[] hourKey = redisUtils.rawKey(HOUR_KEY + HOUR.format(time));
+            byte[] ipKey = redisUtils.rawKey(IP_KEY + DAY.format(time));
+            byte[] browserKey = redisUtils.rawKey(BROWSER_KEY + DAY.format(time));
+            // 浏览器在后台解析，同一 User-Agent 只解析一次
+            byte[][] browsers = flushing.userAgents.stream()
+                    .map(userAgent -> UserAgent.parseUserAgentString(userAgent).getBrowser().getName())
+                    .distinct().map(this::raw).toArray(byte[][]::new);
+            redisUtils.executeBatch((RedisCallback<Object>) connection -> {
+                if (!flushing.users.isEmpty()) {
+                    for (Long userId : flushing.users) {
+                        connection.setBit(dayKey, userId, true);
+                    }
+                    connection.pfAdd(hourKey, flushing.users.stream().map(String::valueOf).map(this::raw)
+                            .toArray(byte[][]::new));
+                    connection.expire(dayKey, DAY_KEY_TTL);
+                    connection.expire(hourKey, HOUR_KEY_TTL);
+                }
+                if (!flushing.ips.isEmpty()) {
+                    connection.pfAdd(ipKey, flushing.ips.stream().map(this::raw).toArray(byte[][]::new));
+                    connection.expire(ipKey, DAY_KEY_TTL);
+                }
+                if (browsers.length > 0) {
+                    connection.pfAdd(browserKey, browsers);
+                    connection.expire(browserKey, DAY_KEY_TTL);
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("flush user activity is error", e);
+        }
+    }
+
+    private String[] dayKeys(LocalDate today, int days) {
+        String[] keys = new String[days];
+        for (int i = 0; i < days; i++) {
+            keys[i] = DAY_KEY + DAY.format(today.minusDays(i));
+        }
+        return keys;
+    }
+
+    private byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 系统时区的当前整点
+     */
+    private static ZonedDateTime currentHour() {
+        return ZonedDateTime.now().truncatedTo(ChronoUnit.HOURS);
+    }
+
+    /**
+     * 一个刷新周期内的去重记录
+     */
+    private static class Buffer {
+
+        private final ZonedDateTime hour;
+
+        private final Set<Long> users = ConcurrentHashMap.newKeySet();
+
+        private final Set<String> ips = ConcurrentHashMap.newKeySet();
+
+        private final Set<String> userAgents = ConcurrentHashMap.newKeySet();
+
+        private Buffer(ZonedDateTime hour) {
+            this.hour = hour;
+        }
+
+        private boolean isEmpty() {
+            return users.isEmpty() && ips.isEmpty() && userAgents.isEmpty();
+        }
+    }
+}
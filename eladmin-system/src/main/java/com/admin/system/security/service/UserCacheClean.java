@@ -17,6 +17,7 @@
 package com.admin.system.security.service;
 
 import com.admin.utils.StringUtils;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
 /**
@@ -25,8 +26,11 @@ import org.springframework.stereotype.Component;
  * @apiNote 用于清理 用户登录信息缓存，为防止Spring循环依赖与安全考虑 ，单独构成工具类
  */
 @Component
+@RequiredArgsConstructor
 public class UserCacheClean {
 
+    private final UserDetailsCache userDetailsCache;
+
     /**
      * 清理特定用户缓存信息<br>
      * 用户信息变更时
@@ -35,7 +39,7 @@ public class UserCacheClean {
      */
     public void cleanUserCache(String userName) {
         if (StringUtils.isNotEmpty(userName)) {
-            UserDetailsServiceImpl.userDtoCache.remove(userName);
+            userDetailsCache.evict(userName);
         }
     }
 
@@ -44,6 +48,6 @@ public class UserCacheClean {
      * ,如发生角色授权信息变化，可以简便的全部失效缓存
      */
     public void cleanAll() {
-        UserDetailsServiceImpl.userDtoCache.clear();
+        userDetailsCache.evictAll();
     }
 }
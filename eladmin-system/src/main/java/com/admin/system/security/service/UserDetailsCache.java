@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.system.security.service;
+
+import com.admin.config.LoginProperties;
+import com.admin.system.dto.AdminJwtUserDto;
+import com.admin.utils.RedisUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 用户登录信息本地缓存，限制数量并按写入时间过期，
+ * 失效时通过 Redis 发布订阅通知所有节点，保证角色、权限变更后各节点及时生效
+ *
+ * @author adyfang
+ * @see UserCacheClean
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserDetailsCache implements MessageListener, InitializingBean {
+
+    /**
+     * 用户信息失效通知频道
+     */
+    public static final String EVICT_CHANNEL = "user-details-evict";
+
+    /**
+     * 失效全部用户的通知内容
+     */
+    private static final String ALL = "*";
+
+    private final LoginProperties properties;
+    private final RedisUtils redisUtils;
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final List<Consumer<String>> evictListeners = new CopyOnWriteArrayList<>();
+    private Cache<String, AdminJwtUserDto> cache;
+
+    @Override
+    public void afterPropertiesSet() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getCacheTtl(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    /**
+     * 注册用户信息失效时的回调，本节点及其它节点的失效通知都会触发，用于清理依附于用户权限的其它本地缓存
+     *
+     * @param listener 参数为用户名，失效全部用户时为空
+     */
+    public void addEvictListener(Consumer<String> listener) {
+        evictListeners.add(listener);
+    }
+
+    /**
+     * @param username 用户名
+     * @return 未缓存时返回空
+     */
+    public AdminJwtUserDto get(String username) {
+        return cache.getIfPresent(username);
+    }
+
+    /**
+     * @param username       用户名
+     * @param adminJwtUserDto /
+     */
+    public void put(String username, AdminJwtUserDto adminJwtUserDto) {
+        cache.put(username, adminJwtUserDto);
+    }
+
+    /**
+     * 失效用户缓存，并通知其它节点
+     *
+     * @param username 用户名
+     */
+    public void evict(String username) {
+        cache.invalidate(username);
+        evictListeners.forEach(listener -> listener.accept(username));
+        redisUtils.publish(EVICT_CHANNEL, username);
+    }
+
+    /**
+     * 失效全部用户缓存，并通知其它节点
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+        evictListeners.forEach(listener -> listener.accept(null));
+        redisUtils.publish(EVICT_CHANNEL, ALL);
+    }
+
+    /**
+     * 缓存命中统计
+     *
+     * @return /
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> map = new LinkedHashMap<>(8);
+        map.put("size", cache.estimatedSize());
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("hitRate", stats.hitRate());
+        map.put("evictionCount", stats.evictionCount());
+        return map;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object username = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (username == null) {
+            return;
+        }
+        log.debug("失效用户信息本地缓存：{}", username);
+        if (ALL.equals(username)) {
+            cache.invalidateAll();
+            evictListeners.forEach(listener -> listener.accept(null));
+        } else {
+            cache.invalidate(username.toString());
+            evictListeners.forEach(listener -> listener.accept(username.toString()));
+        }
+    }
+}
@@ -28,9 +28,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * @author Zheng Jie
  * @date 2018-11-22
@@ -43,23 +40,15 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     private final IRoleService roleService;
     private final IDataService dataService;
     private final LoginProperties loginProperties;
-    /**
-     * 用户信息缓存
-     *
-     * @see UserCacheClean
-     */
-    static Map<String, AdminJwtUserDto> userDtoCache = new ConcurrentHashMap<>();
-
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     public AdminJwtUserDto loadUserByUsername(String username) {
-        boolean searchDb = true;
         AdminJwtUserDto adminJwtUserDto = null;
-        if (loginProperties.isCacheEnable() && userDtoCache.containsKey(username)) {
-            adminJwtUserDto = userDtoCache.get(username);
-            searchDb = false;
+        if (loginProperties.isCacheEnable()) {
+            adminJwtUserDto = userDetailsCache.get(username);
         }
-        if (searchDb) {
+        if (adminJwtUserDto == null) {
             UserDto user;
             try {
                 user = userService.findByName(username);
@@ -78,7 +67,9 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                         dataService.getDeptIds(user),
                         roleService.mapToGrantedAuthorities(user)
                 );
-                userDtoCache.put(username, adminJwtUserDto);
+                if (loginProperties.isCacheEnable()) {
+                    userDetailsCache.put(username, adminJwtUserDto);
+                }
             }
         }
         return adminJwtUserDto;
@@ -1,6 +1,7 @@
 package com.admin.system.service;
 
 import com.admin.config.LoginCode;
+import com.admin.system.dto.CaptchaDto;
 import com.wf.captcha.base.Captcha;
 
 /**
@@ -24,4 +25,11 @@ public interface ICaptchaService {
      */
     Captcha switchCaptcha(LoginCode loginCode);
 
+    /**
+     * 从预先渲染的验证码池中取出一个，池为空时直接渲染
+     *
+     * @return /
+     */
+    CaptchaDto nextCaptcha();
+
 }
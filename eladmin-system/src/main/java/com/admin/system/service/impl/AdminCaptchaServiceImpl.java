@@ -4,25 +4,66 @@ import com.admin.config.LoginCode;
 import com.admin.config.LoginCodeEnum;
 import com.admin.config.LoginProperties;
 import com.admin.exception.BadConfigurationException;
+import com.admin.exception.BadRequestException;
+import com.admin.system.dto.CaptchaDto;
 import com.admin.system.service.ICaptchaService;
 import com.admin.utils.StringUtils;
 import com.wf.captcha.*;
 import com.wf.captcha.base.Captcha;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.awt.*;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author wangjiahao
  * @date 2020/6/28
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class AdminCaptchaServiceImpl implements ICaptchaService {
+public class AdminCaptchaServiceImpl implements ICaptchaService, InitializingBean, DisposableBean {
 
     private final LoginProperties loginProperties;
+    /**
+     * 每种验证码类型一个预先渲染的验证码池
+     */
+    private final Map<LoginCodeEnum, BlockingQueue<CaptchaDto>> pools = new ConcurrentHashMap<>();
+    /**
+     * 每种验证码类型正在补充的后台任务数
+     */
+    private final Map<LoginCodeEnum, AtomicInteger> refilling = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @Override
+    public void afterPropertiesSet() {
+        LoginCode loginCode = loginCode();
+        if (loginCode.getPoolSize() <= 0) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        executor = Executors.newFixedThreadPool(loginCode.getPoolThreads(), r -> {
+            Thread thread = new Thread(r, "captcha-render-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        refill(loginCode);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
 
     /**
      * 获取验证码生产类
@@ -31,14 +72,34 @@ public class AdminCaptchaServiceImpl implements ICaptchaService {
      */
     @Override
     public Captcha getCaptcha() {
-        LoginCode loginCode = loginProperties.getLoginCode();
-        if (Objects.isNull(loginCode)) {
-            loginCode = new LoginCode();
-            if (Objects.isNull(loginCode.getCodeType())) {
-                loginCode.setCodeType(LoginCodeEnum.arithmetic);
-            }
+        return switchCaptcha(loginCode());
+    }
+
+    @Override
+    public CaptchaDto nextCaptcha() {
+        LoginCode loginCode = loginCode();
+        if (executor == null) {
+            return render(loginCode);
         }
-        return switchCaptcha(loginCode);
+        BlockingQueue<CaptchaDto> pool = pool(loginCode);
+        CaptchaDto captcha = pool.poll();
+        // 低于一半时在后台补充
+        if (pool.size() < loginCode.getPoolSize() / 2) {
+            refill(loginCode);
+        }
+        if (captcha != null) {
+            return captcha;
+        }
+        // 验证码池已空说明请求过多，短暂等待后台补充，不在请求线程中渲染
+        try {
+            captcha = pool.poll(loginCode.getPoolWait(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (captcha == null) {
+            throw new BadRequestException(HttpStatus.TOO_MANY_REQUESTS, "验证码请求过多，请稍后再试");
+        }
+        return captcha;
     }
 
     /**
@@ -84,4 +145,67 @@ public class AdminCaptchaServiceImpl implements ICaptchaService {
         return captcha;
     }
 
+    private LoginCode loginCode() {
+        LoginCode loginCode = loginProperties.getLoginCode();
+        if (Objects.isNull(loginCode)) {
+            loginCode = new LoginCode();
+            if (Objects.isNull(loginCode.getCodeType())) {
+                loginCode.setCodeType(LoginCodeEnum.arithmetic);
+            }
+        }
+        return loginCode;
+    }
+
+    private BlockingQueue<CaptchaDto> pool(LoginCode loginCode) {
+        return pools.computeIfAbsent(loginCode.getCodeType(), type -> new ArrayBlockingQueue<>(loginCode.getPoolSize()));
+    }
+
+    /**
+     * 补充验证码池，每种类型同时最多 poolThreads 个任务
+     *
+     * @param loginCode 验证码配置信息
+     */
+    private void refill(LoginCode loginCode) {
+        BlockingQueue<CaptchaDto> pool = pool(loginCode);
+        AtomicInteger active = refilling.computeIfAbsent(loginCode.getCodeType(), type -> new AtomicInteger());
+        int count;
+        while ((count = active.get()) < loginCode.getPoolThreads()) {
+            if (!active.compareAndSet(count, count + 1)) {
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        while (pool.remainingCapacity() > 0) {
+                            pool.offer(render(loginCode));
+                        }
+                    } catch (Exception e) {
+                        log.error("render captcha is error", e);
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                active.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 渲染验证码图片并计算答案
+     *
+     * @param loginCode 验证码配置信息
+     * @return /
+     */
+    private CaptchaDto render(LoginCode loginCode) {
+        Captcha captcha = switchCaptcha(loginCode);
+        String text = captcha.text();
+        // 当验证码类型为 arithmetic时且长度 >= 2 时，captcha.text()的结果有几率为浮点型
+        if (captcha instanceof ArithmeticCaptcha && text.contains(".")) {
+            text = text.split("\\.")[0];
+        }
+        return new CaptchaDto(text, captcha.toBase64());
+    }
+
 }
@@ -77,7 +77,7 @@ public class AdminDeptServiceImpl extends ServiceImpl<IDeptMapper, DeptModel> im
     }
 
     @Override
-    @Cacheable
+    @Cacheable(sync = true)
     public List<DeptModel> queryAll() {
         return this.list();
     }
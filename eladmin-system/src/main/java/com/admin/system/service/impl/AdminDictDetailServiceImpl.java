@@ -82,7 +82,7 @@ public class AdminDictDetailServiceImpl extends ServiceImpl<IDictDetailMapper, D
     }
 
     @Override
-    @Cacheable(key = "'name:' + #p0")
+    @Cacheable(key = "'name:' + #p0", sync = true)
     public List<DictDetailDto> getDictByName(String name) {
         List<DictDetailModel> list = this.baseMapper.findByDictName(name);
         return DozerUtils.mapList(mapper, list, DictDetailDto.class);
@@ -56,7 +56,7 @@ public class AdminDictServiceImpl extends ServiceImpl<IDictMapper, DictModel> im
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     @Override
-    @Cacheable
+    @Cacheable(sync = true)
     public Map<String, Object> queryAll(DictQueryCriteria criteria, IPage pageable) {
         IPage<DictModel> page = this.page(pageable, buildWrapper(criteria));
         return PageUtil.toPage(page.getRecords(), page.getTotal());
@@ -261,7 +261,7 @@ public class AdminMenuServiceImpl extends ServiceImpl<IMenuMapper, MenuModel> im
                 map.put("id", menu.getId());
                 map.put("label", menu.getTitle());
                 if (menuList != null && menuList.size() != 0) {
-                    map.put("children", getMenuTree(menu.getId()));
+                    map.put("children", buildMenuTree(allMap, menu.getId()));
                 }
                 list.add(map);
             }
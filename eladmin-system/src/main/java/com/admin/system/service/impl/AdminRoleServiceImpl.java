@@ -229,7 +229,7 @@ public class AdminRoleServiceImpl extends ServiceImpl<IRoleMapper, RoleModel> im
     }
 
     @Override
-    @Cacheable(key = "'auth:' + #p0.id")
+    @Cacheable(key = "'auth:' + #p0.id", sync = true)
     public List<GrantedAuthority> mapToGrantedAuthorities(UserDto user) {
         Set<String> permissions = new HashSet<>();
         // 如果是管理员直接返回
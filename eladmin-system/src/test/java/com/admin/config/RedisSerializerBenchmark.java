@@ -0,0 +1,183 @@
+package com.admin.config;
+
+import com.admin.base.BaseDTO;
+import com.admin.modules.system.service.dto.*;
+import com.admin.utils.BinaryCodec;
+import com.alibaba.fastjson.parser.ParserConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 FastJson 与二进制编码在缓存对象上的编码、解码耗时，
+ * 两种方式的数据大小在每轮测试开始时输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    @Param({"user", "menus", "depts"})
+    private String payload;
+
+    private Object value;
+    private FastJsonRedisSerializer<Object> json;
+    private BinaryRedisSerializer binary;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setup() {
+        ParserConfig.getGlobalInstance().setAutoTypeSupport(true);
+        json = new FastJsonRedisSerializer<>(Object.class);
+        BinaryCodec codec = new BinaryCodec();
+        new SystemRedisTypes().register(codec);
+        binary = new BinaryRedisSerializer(codec, json, true);
+        switch (payload) {
+            case "user":
+                value = user();
+                break;
+            case "menus":
+                value = menus();
+                break;
+            default:
+                value = depts();
+                break;
+        }
+        jsonBytes = json.serialize(value);
+        binaryBytes = binary.serialize(value);
+        System.out.printf("%n%s: json %d bytes, binary %d bytes%n", payload, jsonBytes.length, binaryBytes.length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return json.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binary.serialize(value);
+    }
+
+    @Benchmark
+    public Object jsonDecode() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object binaryDecode() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    private static UserDto user() {
+        UserDto user = new UserDto();
+        user.setId(1L);
+        user.setUsername("admin");
+        user.setNickName("管理员");
+        user.setEmail("admin@el-admin.vip");
+        user.setPhone("18888888888");
+        user.setGender("男");
+        user.setAvatarName("avatar-20200806032259161.png");
+        user.setAvatarPath("/home/eladmin/avatar/avatar-20200806032259161.png");
+        user.setPassword("$2a$10$Egp1/gvFlt7zhlXVfEFw4OfWQCGPw0ClmMcc6FjTnvXNRVf9zdMRa");
+        user.setEnabled(true);
+        user.setDeptId(2L);
+        DeptSmallDto dept = new DeptSmallDto();
+        dept.setId(2L);
+        dept.setName("研发部");
+        user.setDept(dept);
+        user.setRoles(new LinkedHashSet<>());
+        for (long i = 1; i <= 3; i++) {
+            RoleSmallDto role = new RoleSmallDto();
+            role.setId(i);
+            role.setName("角色" + i);
+            role.setLevel((int) i);
+            role.setDataScope("本级");
+            user.getRoles().add(role);
+        }
+        JobSmallDto job = new JobSmallDto();
+        job.setId(11L);
+        job.setName("全栈开发");
+        user.setJobs(new LinkedHashSet<>(Arrays.asList(job)));
+        user.setPwdResetTime(new Timestamp(System.currentTimeMillis()));
+        audit(user);
+        return user;
+    }
+
+    private static List<MenuDto> menus() {
+        List<MenuDto> menus = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            MenuDto parent = menu(i, null, "系统管理" + i);
+            parent.setChildren(new ArrayList<>());
+            for (long j = 1; j <= 8; j++) {
+                parent.getChildren().add(menu(i * 100 + j, i, "菜单" + j));
+            }
+            parent.setSubCount(parent.getChildren().size());
+            menus.add(parent);
+        }
+        return menus;
+    }
+
+    private static MenuDto menu(long id, Long pid, String title) {
+        MenuDto menu = new MenuDto();
+        menu.setId(id);
+        menu.setPid(pid);
+        menu.setTitle(title);
+        menu.setType(pid == null ? 0 : 1);
+        menu.setPermission("module" + id + ":list");
+        menu.setMenuSort((int) id);
+        menu.setPath("module" + id);
+        menu.setComponent("system/module" + id + "/index");
+        menu.setComponentName("Module" + id);
+        menu.setIcon("system");
+        menu.setSubCount(0);
+        menu.setIFrame(false);
+        menu.setCache(false);
+        menu.setHidden(false);
+        audit(menu);
+        return menu;
+    }
+
+    private static List<DeptDto> depts() {
+        List<DeptDto> depts = new ArrayList<>();
+        for (long i = 1; i <= 50; i++) {
+            DeptDto dept = new DeptDto();
+            dept.setId(i);
+            dept.setPid(i > 5 ? i % 5 + 1 : null);
+            dept.setName("部门" + i);
+            dept.setEnabled(true);
+            dept.setDeptSort((int) i);
+            dept.setSubCount(0);
+            audit(dept);
+            depts.add(dept);
+        }
+        return depts;
+    }
+
+    private static void audit(BaseDTO dto) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        dto.setCreateBy("admin");
+        dto.setUpdatedBy("admin");
+        dto.setCreateTime(now);
+        dto.setUpdateTime(now);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RedisSerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
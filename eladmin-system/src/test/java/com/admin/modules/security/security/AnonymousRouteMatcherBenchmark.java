@@ -0,0 +1,76 @@
+package com.admin.modules.security.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个请求判断是否为匿名访问路径的耗时。
+ * antMatchers 按 Spring Security 的方式逐个匹配 AntPathRequestMatcher，routeMatcher 使用预先编译的 AnonymousRouteMatcher，
+ * 受保护接口需要遍历全部规则，是最坏情况
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnonymousRouteMatcherBenchmark {
+
+    @Param({"GET /api/users", "POST /auth/login", "GET /static/js/app.8d3f.js", "GET /file/avatar/1.png"})
+    private String route;
+
+    private MockHttpServletRequest request;
+    private List<RequestMatcher> antMatchers;
+    private AnonymousRouteMatcher routeMatcher;
+
+    @Setup
+    public void setup() {
+        routeMatcher = new AnonymousRouteMatcher()
+                .add(HttpMethod.GET, "/*.html", "/**/*.html", "/**/*.css", "/**/*.js", "/webSocket/**")
+                .add(null, "/swagger-ui.html", "/swagger-resources/**", "/webjars/**", "/*/api-docs")
+                .add(null, "/avatar/**", "/file/**", "/druid/**")
+                .add(HttpMethod.OPTIONS, "/**")
+                .add(HttpMethod.GET, "/", "/auth/code", "/api/aliPay/return")
+                .add(HttpMethod.POST, "/auth/login", "/api/aliPay/notify")
+                .add(HttpMethod.DELETE, "/auth/logout");
+        antMatchers = new ArrayList<>();
+        routeMatcher.getRoutes().forEach((method, patterns) -> patterns.forEach(pattern ->
+                antMatchers.add(new AntPathRequestMatcher(pattern, method == null ? null : method.name()))));
+        String[] parts = route.split(" ");
+        request = new MockHttpServletRequest(parts[0], parts[1]);
+        request.setServletPath(parts[1]);
+    }
+
+    @Benchmark
+    public boolean antMatchers() {
+        for (RequestMatcher matcher : antMatchers) {
+            if (matcher.matches(request)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean routeMatcher() {
+        return routeMatcher.matches(request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(AnonymousRouteMatcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,104 @@
+package com.admin.modules.security.security;
+
+import com.admin.config.SecurityProperties;
+import com.admin.system.security.service.OnlineUserCache;
+import com.admin.utils.EncryptUtils;
+import com.admin.utils.RsaUtils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.DESKeySpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 并发登录时加解密部分的吞吐量：RSA 解密密码、签发 Token、DES 加密 Token。
+ * legacyLogin 按原实现每次解析密钥、创建 Cipher 与 JwtBuilder；pooledLogin 使用复用密钥与线程内 Cipher 的实现
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class LoginCryptoBenchmark {
+
+    private static final String SECRET = "ZmQ0ZGI5NjQ0MDQwY2I4MjMxY2Y3ZmI3MjdhN2ZmMjNhODViOTg1ZGE0NTBjMGM4NDA5NzYxMjdjOWMwYWRmZTBlZjlhNGY3ZTg4Y2U3YTE1ODVkZDU5Y2Y3OGYwZWE1NzUzNWQ2YjFjZDc0NGMxZWU2MmQ3MjY1NzJmNTE0MzI=";
+
+    private String privateKey;
+    private String encryptedPassword;
+    private Authentication authentication;
+    private TokenProvider tokenProvider;
+
+    @Setup
+    public void setup() throws Exception {
+        RsaUtils.RsaKeyPair keyPair = RsaUtils.generateKeyPair();
+        privateKey = keyPair.getPrivateKey();
+        encryptedPassword = RsaUtils.encryptByPublicKey(keyPair.getPublicKey(), "123456");
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            authorities.add(new SimpleGrantedAuthority("module" + i + ":list"));
+        }
+        authentication = new UsernamePasswordAuthenticationToken("admin", null, authorities);
+        SecurityProperties properties = new SecurityProperties();
+        properties.setBase64Secret(SECRET);
+        properties.setOnlineCacheSize(0);
+        tokenProvider = new TokenProvider(properties, new OnlineUserCache(properties, null, null, null), null);
+        tokenProvider.afterPropertiesSet();
+    }
+
+    @Benchmark
+    public String legacyLogin() throws Exception {
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.decodeBase64(privateKey));
+        Cipher rsa = Cipher.getInstance("RSA");
+        rsa.init(Cipher.DECRYPT_MODE, KeyFactory.getInstance("RSA").generatePrivate(keySpec));
+        String password = new String(rsa.doFinal(Base64.decodeBase64(encryptedPassword)));
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        String token = Jwts.builder().signWith(key, SignatureAlgorithm.HS512)
+                .setId(password)
+                .claim(TokenProvider.AUTHORITIES_KEY, authentication.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority).collect(Collectors.joining(",")))
+                .setSubject(authentication.getName())
+                .compact();
+        Cipher des = Cipher.getInstance("DES/CBC/PKCS5Padding");
+        des.init(Cipher.ENCRYPT_MODE,
+                SecretKeyFactory.getInstance("DES").generateSecret(new DESKeySpec("Passw0rd".getBytes(StandardCharsets.UTF_8))),
+                new IvParameterSpec("Passw0rd".getBytes(StandardCharsets.UTF_8)));
+        return Base64.encodeBase64String(des.doFinal(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String pooledLogin() throws Exception {
+        RsaUtils.decryptByPrivateKey(privateKey, encryptedPassword);
+        return EncryptUtils.desEncrypt(tokenProvider.createToken(authentication));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LoginCryptoBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.admin.modules.security.security;
+
+import com.admin.config.SecurityProperties;
+import com.admin.system.security.service.OnlineUserCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比每次请求解析 Token 与使用已验证鉴权信息缓存的耗时及内存分配，
+ * 分配情况见结果中的 gc.alloc.rate.norm（字节/次）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenProviderBenchmark {
+
+    private static final String SECRET = "ZmQ0ZGI5NjQ0MDQwY2I4MjMxY2Y3ZmI3MjdhN2ZmMjNhODViOTg1ZGE0NTBjMGM4NDA5NzYxMjdjOWMwYWRmZTBlZjlhNGY3ZTg4Y2U3YTE1ODVkZDU5Y2Y3OGYwZWE1NzUzNWQ2YjFjZDc0NGMxZWU2MmQ3MjY1NzJmNTE0MzI=";
+
+    @Param({"10", "300"})
+    private int authorityCount;
+
+    private TokenProvider parsing;
+    private TokenProvider caching;
+    private String token;
+
+    @Setup
+    public void setup() {
+        parsing = provider(0);
+        caching = provider(10000);
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        for (int i = 0; i < authorityCount; i++) {
+            authorities.add(new SimpleGrantedAuthority("module" + i + ":list"));
+        }
+        token = parsing.createToken(new UsernamePasswordAuthenticationToken("admin", null, authorities));
+        caching.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication parseEveryRequest() {
+        return parsing.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication cachedAuthentication() {
+        return caching.getAuthentication(token);
+    }
+
+    private static TokenProvider provider(int cacheSize) {
+        SecurityProperties properties = new SecurityProperties();
+        properties.setBase64Secret(SECRET);
+        properties.setOnlineKey("online-token-");
+        properties.setOnlineCacheSize(cacheSize);
+        properties.setOnlineCacheTtl(60000L);
+        TokenProvider provider = new TokenProvider(properties, new OnlineUserCache(properties, null, null, null), null);
+        provider.afterPropertiesSet();
+        return provider;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TokenProviderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
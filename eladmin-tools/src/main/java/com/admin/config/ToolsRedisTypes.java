@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2019-2020 Fang Jin Biao
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.admin.config;
+
+import com.admin.tools.model.AlipayConfigModel;
+import com.admin.tools.model.EmailConfigModel;
+import com.admin.tools.model.QiNiuConfigModel;
+import com.admin.utils.BinaryCodec;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工具模块缓存对象的二进制编码类型编号，使用 100 ~ 199，只能追加，不可修改或复用
+ *
+ * @author adyfang
+ */
+@Component
+public class ToolsRedisTypes implements RedisTypeRegistrar {
+
+    @Override
+    public void register(BinaryCodec codec) {
+        codec.register(100, AlipayConfigModel.class)
+                .register(101, EmailConfigModel.class)
+                .register(102, QiNiuConfigModel.class);
+    }
+}